@@ -1,5 +1,5 @@
 /*
- * Copyright 2023 the original author or authors.
+ * Copyright 2023-2026 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -94,4 +94,70 @@ class HDVLBasePluginSpec extends Specification {
         then:
         result.task(":genFullXrunArgsFile").outcome == SUCCESS
     }
+
+    def "only tools listed in 'hdvl.tools' get tasks and configurations"() {
+        given:
+        fsFixture.create {
+            file('gradle.properties') << """
+                hdvl.tools=xrun
+            """
+        }
+        buildFile << """
+            tasks.register('printConfigurations') {
+                def names = configurations.names
+                doLast {
+                    println "Configurations: \${names}"
+                }
+            }
+        """
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(fsFixture.currentPath.toFile())
+            .withPluginClasspath()
+            .withArguments('tasks', '--all', 'printConfigurations')
+            .build()
+
+        then:
+        result.output.contains('genXrunArgsFile')
+        !result.output.contains('genQrunArgsFile')
+        result.output.contains('xrunArgsFiles')
+        !result.output.contains('qrunArgsFiles')
+    }
+
+    def "can add a tool with its own args file dialect"() {
+        given:
+        fsFixture.create {
+            dir('src/main/sv') {
+                file('main.sv')
+            }
+            dir('src/main/sv_headers') {
+                file('main.svh')
+            }
+        }
+        buildFile.text = """
+            plugins {
+                id 'com.verificationgentleman.gradle.hdvl.systemverilog'
+            }
+
+            hdvl.tools.create('vcs') {
+                libraryName.set('vcslib')
+                includeDirOption.set('+incdir+')
+            }
+        """
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(fsFixture.currentPath.toFile())
+            .withPluginClasspath()
+            .withArguments('genVcsArgsFile')
+            .build()
+
+        then:
+        result.task(":genVcsArgsFile").outcome == SUCCESS
+        def lines = fsFixture.resolve('build/vcs_args.f').toFile().readLines()
+        lines.any { it.startsWith('+incdir+') && it.endsWith('src/main/sv_headers') }
+        lines.contains('-makelib vcslib')
+        lines.any { it.endsWith('src/main/sv/main.sv') }
+    }
 }
@@ -92,4 +92,37 @@ class DVTPluginSpec extends AbstractDVTPluginSpec {
         defaultBuild.text.contains('-f')
         defaultBuild.text.contains('full_xrun_args.f')
     }
+
+    def "'dvt' task keeps the timestamp of 'default.build' if unchanged when 'writeIfChanged' is set"() {
+        buildFile << """
+            plugins {
+                id 'com.verificationgentleman.gradle.hdvl.systemverilog'
+            }
+
+            hdvl {
+                writeIfChanged = true
+            }
+        """
+
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':dvt')
+            .build()
+
+        def defaultBuild = new File(testProjectDir.root, '.dvt/default.build')
+        defaultBuild.setLastModified(0)
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':dvt', '--rerun-tasks')
+            .build()
+
+        then:
+        result.task(":dvt").outcome == SUCCESS
+        defaultBuild.lastModified() == 0
+        defaultBuild.text.contains('+dvt_init+xcelium.xrun')
+    }
 }
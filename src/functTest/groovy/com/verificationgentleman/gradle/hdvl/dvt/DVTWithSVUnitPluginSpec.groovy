@@ -21,6 +21,7 @@ import org.gradle.testkit.runner.GradleRunner
 import java.nio.file.Files
 
 import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
+import static org.gradle.testkit.runner.TaskOutcome.UP_TO_DATE
 
 class DVTWithSVUnitPluginSpec extends AbstractDVTPluginSpec {
     File testSv
@@ -96,4 +97,45 @@ class DVTWithSVUnitPluginSpec extends AbstractDVTPluginSpec {
         def defaultBuild = new File(testProjectDir.root, '.dvt/default.build')
         defaultBuild.text.contains "-F $svunitArgsFile"
     }
+
+    def "'dvt' task can generate the SVUnit test infrastructure without 'buildSVUnit'"() {
+        buildFile << """
+            dvt {
+                nativeTestInfrastructure = true
+            }
+        """
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('dvt')
+            .build()
+
+        then:
+        result.task(":dvt").outcome == SUCCESS
+        def svunitArgsFile = new File(testProjectDir.root, 'build/dvt/svunit/.svunit.f')
+        svunitArgsFile.text.contains 'tests/dummy_unit_test.sv'
+        svunitArgsFile.text.contains '.testrunner.sv'
+        def testsuite = new File(testProjectDir.root, 'build/dvt/svunit/.__tests_testsuite.sv')
+        testsuite.text.contains 'dummy_unit_test dummy_ut();'
+    }
+
+    def "'dvt' task is up to date when the unit tests didn't change"() {
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('dvt')
+            .build()
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('dvt')
+            .build()
+
+        then:
+        result.task(":dvt").outcome == UP_TO_DATE
+    }
 }
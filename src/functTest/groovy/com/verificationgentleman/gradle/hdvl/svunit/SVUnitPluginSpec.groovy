@@ -1,5 +1,5 @@
 /*
- * Copyright 2021 the original author or authors.
+ * Copyright 2021-2026 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,14 +17,18 @@
 package com.verificationgentleman.gradle.hdvl.svunit
 
 import com.verificationgentleman.gradle.hdvl.systemverilog.SystemVerilogPlugin
+import groovy.json.JsonSlurper
 import org.gradle.testkit.runner.GradleRunner
 import org.junit.Rule
 import org.junit.rules.TemporaryFolder
 import spock.lang.Specification
 
 import java.nio.file.Files
+import java.util.zip.GZIPInputStream
 
+import static org.gradle.testkit.runner.TaskOutcome.FAILED
 import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
+import static org.gradle.testkit.runner.TaskOutcome.UP_TO_DATE
 
 class SVUnitPluginSpec extends Specification  {
     @Rule TemporaryFolder testProjectDir = new TemporaryFolder()
@@ -127,7 +131,7 @@ class SVUnitPluginSpec extends Specification  {
 
         then:
         result.task(":testWithXrun").outcome == SUCCESS
-        def testsLink = new File(testProjectDir.root, 'build/svunit/tests')
+        def testsLink = new File(testProjectDir.root, 'build/svunit/xrun/tests')
         testsLink.exists()
         Files.isSymbolicLink(testsLink.toPath())
         testsLink.toPath().toRealPath() == sv.toPath()
@@ -156,7 +160,7 @@ class SVUnitPluginSpec extends Specification  {
 
         then:
         result.task(":testWithXrun").outcome == SUCCESS
-        def testsLink = new File(testProjectDir.root, 'build/svunit/tests')
+        def testsLink = new File(testProjectDir.root, 'build/svunit/xrun/tests')
         testsLink.exists()
         Files.isSymbolicLink(testsLink.toPath())
         testsLink.toPath().toRealPath() == sv.toPath()
@@ -175,7 +179,7 @@ class SVUnitPluginSpec extends Specification  {
 
         then:
         result.task(":testWithXrun").outcome == SUCCESS
-        def dummyLog = new File(testProjectDir.root, 'build/svunit/runSVUnit.log')
+        def dummyLog = new File(testProjectDir.root, 'build/svunit/xrun/runSVUnit.log')
         dummyLog.exists()
     }
 
@@ -192,7 +196,7 @@ class SVUnitPluginSpec extends Specification  {
 
         then:
         result.task(":testWithXrun").outcome == SUCCESS
-        def dummyLog = new File(testProjectDir.root, 'build/svunit/runSVUnit.log')
+        def dummyLog = new File(testProjectDir.root, 'build/svunit/xrun/runSVUnit.log')
         dummyLog.text.contains "-f ${testProjectDir.root}/build/full_xrun_args.f"
     }
 
@@ -209,7 +213,7 @@ class SVUnitPluginSpec extends Specification  {
 
         then:
         result.task(":testWithQrun").outcome == SUCCESS
-        def dummyLog = new File(testProjectDir.root, 'build/svunit/runSVUnit.log')
+        def dummyLog = new File(testProjectDir.root, 'build/svunit/qrun/runSVUnit.log')
         dummyLog.text.contains "-f ${testProjectDir.root}/build/full_qrun_args.f"
     }
 
@@ -226,7 +230,7 @@ class SVUnitPluginSpec extends Specification  {
 
         then:
         result.task(":testWithXrun").outcome == SUCCESS
-        def dummyLog = new File(testProjectDir.root, 'build/svunit/runSVUnit.log')
+        def dummyLog = new File(testProjectDir.root, 'build/svunit/xrun/runSVUnit.log')
         dummyLog.text.contains "-sim xrun"
     }
 
@@ -243,7 +247,7 @@ class SVUnitPluginSpec extends Specification  {
 
         then:
         result.task(":testWithQrun").outcome == SUCCESS
-        def dummyLog = new File(testProjectDir.root, 'build/svunit/runSVUnit.log')
+        def dummyLog = new File(testProjectDir.root, 'build/svunit/qrun/runSVUnit.log')
         dummyLog.text.contains "-sim qrun"
     }
 
@@ -328,7 +332,7 @@ class SVUnitPluginSpec extends Specification  {
 
         then:
         result.task(":testWithXrun").outcome == SUCCESS
-        def dummyLog = new File(testProjectDir.root, 'build/svunit/runSVUnit.log')
+        def dummyLog = new File(testProjectDir.root, 'build/svunit/xrun/runSVUnit.log')
         dummyLog.text.contains "--uvm"
     }
 
@@ -353,7 +357,7 @@ class SVUnitPluginSpec extends Specification  {
 
         then:
         result.task(":testWithXrun").outcome == SUCCESS
-        def dummyLog = new File(testProjectDir.root, 'build/svunit/runSVUnit.log')
+        def dummyLog = new File(testProjectDir.root, 'build/svunit/xrun/runSVUnit.log')
         dummyLog.text.contains "-xmerror RECOMP"
     }
 
@@ -415,7 +419,7 @@ class SVUnitPluginSpec extends Specification  {
 
         then:
         result.task(":testWithXrun").outcome == SUCCESS
-        def dummyLog = new File(testProjectDir.root, 'build/svunit/runSVUnit.log')
+        def dummyLog = new File(testProjectDir.root, 'build/svunit/xrun/runSVUnit.log')
         dummyLog.text.contains "-f ${testProjectDir.root}/build/full_test_xrun_args.f"
     }
 
@@ -463,6 +467,397 @@ class SVUnitPluginSpec extends Specification  {
         result.task(":testWithQrun").outcome == SUCCESS
     }
 
+    def "test tasks for different tools use separate working directories"() {
+        File testSv = testProjectDir.newFolder('src', 'test', 'sv')
+        new File(testSv, 'dummy_test.sv').createNewFile()
+
+        when:
+        def result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('check', '--parallel')
+            .build()
+
+        then:
+        result.task(":testWithXrun").outcome == SUCCESS
+        result.task(":testWithQrun").outcome == SUCCESS
+        new File(testProjectDir.root, 'build/svunit/xrun/runSVUnit.log').text.contains '-sim xrun'
+        new File(testProjectDir.root, 'build/svunit/qrun/runSVUnit.log').text.contains '-sim qrun'
+    }
+
+    def "'testWithXrun' task copies logs to results directory"() {
+        File testSv = testProjectDir.newFolder('src', 'test', 'sv')
+        new File(testSv, 'dummy_test.sv').createNewFile()
+
+        when:
+        def result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        result.task(":testWithXrun").outcome == SUCCESS
+        new File(testProjectDir.root, 'build/test-results/testWithXrun/runSVUnit.log').exists()
+    }
+
+    def "'testWithXrun' task writes JUnit reports and timings parsed from the output"() {
+        File testSv = testProjectDir.newFolder('src', 'test', 'sv')
+        new File(testSv, 'dummy_unit_test.sv').createNewFile()
+
+        when:
+        def result = newGradleRunnerWithFakeRunSVunit(FAKE_RUNSVUNIT_FAILING_TEST: '1')
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        result.task(":testWithXrun").outcome == SUCCESS
+        def report = new XmlSlurper().parse(
+            new File(testProjectDir.root, 'build/test-results/testWithXrun/junit/TEST-xrun_ut.xml'))
+        report.@tests == '2'
+        report.@failures == '1'
+        report.testcase*.@name*.text() == ['passing_test', 'failing_test']
+        report.testcase.find { it.@name == 'failing_test' }.failure.text().contains 'fail_unless: 1 == 0'
+
+        and:
+        def timings = new JsonSlurper().parse(
+            new File(testProjectDir.root, 'build/test-results/testWithXrun/timings.json'))
+        timings*.test == ['passing_test', 'failing_test']
+        timings*.result == ['PASSED', 'FAILED']
+        timings.every { it.durationMillis >= 0 }
+    }
+
+    def "'testWithXrun' task is up-to-date even though SVUnit generates testsuites next to the unit tests"() {
+        File testSv = testProjectDir.newFolder('src', 'test', 'sv')
+        new File(testSv, 'dummy_unit_test.sv').createNewFile()
+
+        when:
+        newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+        def result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        new File(testSv, '.__tests_testsuite.sv').exists()
+        result.task(":testWithXrun").outcome == UP_TO_DATE
+    }
+
+    def "'testWithXrun' task is up-to-date even though the tests root is an include directory"() {
+        File testSv = testProjectDir.newFolder('src', 'test', 'sv')
+        new File(testSv, 'dummy_unit_test.sv').createNewFile()
+        new File(testSv, 'some_header.svh').createNewFile()
+
+        when:
+        newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+        def result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        def testXrunArgs = new File(testProjectDir.root, 'build/test_xrun_args.f')
+        testXrunArgs.text.split("\n").any { it.contains('-incdir') && it.endsWith('src/test/sv') }
+        new File(testSv, '.__tests_testsuite.sv').exists()
+        result.task(":testWithXrun").outcome == UP_TO_DATE
+
+        when:
+        new File(testSv, 'some_header.svh') << "// changed"
+        result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        result.task(":testWithXrun").outcome == SUCCESS
+    }
+
+    def "'testWithXrun' task is up-to-date if nothing changed"() {
+        File testSv = testProjectDir.newFolder('src', 'test', 'sv')
+        new File(testSv, 'dummy_unit_test.sv').createNewFile()
+
+        when:
+        newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+        def result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        result.task(":testWithXrun").outcome == UP_TO_DATE
+
+        when:
+        new File(testSv, 'dummy_unit_test.sv') << "// changed"
+        result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        result.task(":testWithXrun").outcome == SUCCESS
+
+        when:
+        new File(testProjectDir.root, 'src/main/sv/dummy_main.sv') << "// changed"
+        result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        result.task(":testWithXrun").outcome == SUCCESS
+    }
+
+    def "'testWithXrun' task runs shards in separate working directories"() {
+        buildFile << """
+            testWithXrun {
+                shards = 2
+            }
+        """
+        File testSv = testProjectDir.newFolder('src', 'test', 'sv')
+        new File(testSv, 'a_unit_test.sv').createNewFile()
+        new File(testSv, 'b_unit_test.sv').createNewFile()
+        new File(testSv, 'c_unit_test.sv').createNewFile()
+
+        when:
+        def result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        result.task(":testWithXrun").outcome == SUCCESS
+        def firstShardLog = new File(testProjectDir.root, 'build/svunit/xrun/shard-1/runSVUnit.log')
+        firstShardLog.text.contains "-t tests/a_unit_test.sv -t tests/c_unit_test.sv"
+        def secondShardLog = new File(testProjectDir.root, 'build/svunit/xrun/shard-2/runSVUnit.log')
+        secondShardLog.text.contains "-t tests/b_unit_test.sv"
+        !secondShardLog.text.contains("a_unit_test.sv")
+
+        and:
+        new File(testProjectDir.root, 'build/test-results/testWithXrun/shard-1/runSVUnit.log').exists()
+        new File(testProjectDir.root, 'build/test-results/testWithXrun/shard-2/runSVUnit.log').exists()
+        def testSuites = new XmlSlurper().parse(new File(testProjectDir.root, 'build/test-results/testWithXrun/tests.xml'))
+        testSuites.testsuite*.@name*.text() == ['shard-1', 'shard-2']
+    }
+
+    def "'testWithXrun' task only runs unit tests affected by changes"() {
+        buildFile << """
+            testWithXrun {
+                affectedTestsOnly = true
+            }
+        """
+        File mainSv = new File(testProjectDir.root, 'src/main/sv')
+        new File(mainSv, 'a_pkg.sv').text = "package a_pkg; endpackage"
+        new File(mainSv, 'b_pkg.sv').text = "package b_pkg; endpackage"
+        File testSv = testProjectDir.newFolder('src', 'test', 'sv')
+        new File(testSv, 'a_unit_test.sv').text = "module a_unit_test; import a_pkg::*; endmodule"
+        new File(testSv, 'b_unit_test.sv').text = "module b_unit_test; import b_pkg::*; endmodule"
+
+        when:
+        newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        def dummyLog = new File(testProjectDir.root, 'build/svunit/xrun/runSVUnit.log')
+        !dummyLog.text.contains("-t tests/")
+
+        when:
+        dummyLog.delete()
+        new File(mainSv, 'b_pkg.sv') << "// changed"
+        def result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        result.task(":testWithXrun").outcome == SUCCESS
+        dummyLog.text.contains "-t tests/b_unit_test.sv"
+        !dummyLog.text.contains("a_unit_test.sv")
+
+        when:
+        new File(mainSv, 'dummy_main.sv') << "// changed"
+        result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        result.task(":testWithXrun").outcome == SUCCESS
+        result.output.contains "No unit tests are affected by the changes."
+    }
+
+    def "'testWithXrun' task keeps results of unaffected unit tests in 'tests.xml'"() {
+        buildFile << """
+            testWithXrun {
+                affectedTestsOnly = true
+            }
+        """
+        File mainSv = new File(testProjectDir.root, 'src/main/sv')
+        new File(mainSv, 'a_pkg.sv').text = "package a_pkg; endpackage"
+        new File(mainSv, 'b_pkg.sv').text = "package b_pkg; endpackage"
+        File testSv = testProjectDir.newFolder('src', 'test', 'sv')
+        new File(testSv, 'a_unit_test.sv').text = "module a_unit_test; import a_pkg::*; endmodule"
+        new File(testSv, 'b_unit_test.sv').text = "module b_unit_test; import b_pkg::*; endmodule"
+
+        newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        when:
+        new File(mainSv, 'b_pkg.sv') << "// changed"
+        def result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        result.task(":testWithXrun").outcome == SUCCESS
+        new File(testProjectDir.root, 'build/svunit/xrun/runSVUnit.log').text.contains "-t tests/b_unit_test.sv"
+        def testSuites = new XmlSlurper().parse(new File(testProjectDir.root, 'build/test-results/testWithXrun/tests.xml'))
+        testSuites.testsuite.testcase*.@classname*.text().sort() == ['a_ut', 'b_ut']
+    }
+
+    def "'testWithXrun' task reuses snapshot when only runtime args change"() {
+        buildFile << """
+            toolChains {
+                runSVUnit {
+                    runtimeArgs '+seed=1'
+                }
+            }
+            testWithXrun {
+                reuseSnapshot = true
+            }
+        """
+        File testSv = testProjectDir.newFolder('src', 'test', 'sv')
+        new File(testSv, 'dummy_unit_test.sv').createNewFile()
+        def dummyLog = new File(testProjectDir.root, 'build/svunit/xrun/runSVUnit.log')
+        def simulatorLog = new File(testProjectDir.root, 'build/svunit/xrun/xrun.log')
+
+        when:
+        newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        dummyLog.text.contains "-r +seed=1"
+        !simulatorLog.exists()
+
+        when:
+        dummyLog.delete()
+        buildFile << """
+            toolChains.runSVUnit.runtimeArgs.set(['+seed=2'])
+        """
+        def result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        result.task(":testWithXrun").outcome == SUCCESS
+        !dummyLog.exists()
+        simulatorLog.text.contains "-R -l run.log +seed=2"
+        new File(testProjectDir.root, 'build/test-results/testWithXrun/tests.xml').text.contains 'passing_test'
+
+        when:
+        buildFile << """
+            toolChains.runSVUnit.args('some_arg')
+        """
+        result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        result.task(":testWithXrun").outcome == SUCCESS
+        dummyLog.text.contains "some_arg"
+
+        when:
+        dummyLog.delete()
+        new File(testProjectDir.root, 'src/main/sv/dummy_main.sv') << "// changed"
+        buildFile << """
+            toolChains.runSVUnit.runtimeArgs.set(['+seed=3'])
+        """
+        result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        result.task(":testWithXrun").outcome == SUCCESS
+        dummyLog.text.contains "-r +seed=3"
+    }
+
+    def "'testWithXrun' task writes simulator output to compressed log instead of console"() {
+        File testSv = testProjectDir.newFolder('src', 'test', 'sv')
+        new File(testSv, 'dummy_unit_test.sv').createNewFile()
+
+        when:
+        def result = newGradleRunnerWithFakeRunSVunit()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .build()
+
+        then:
+        result.task(":testWithXrun").outcome == SUCCESS
+        !result.output.contains("Dummy runSVUnit")
+        def outputLog = new File(testProjectDir.root, 'build/svunit/xrun/output.log.gz')
+        def output = new GZIPInputStream(outputLog.newInputStream()).text
+        output.contains "Dummy runSVUnit"
+        output.contains "passing_test::PASSED"
+    }
+
+    def "'testWithXrun' task shows tail of simulator output on failure"() {
+        File testSv = testProjectDir.newFolder('src', 'test', 'sv')
+        new File(testSv, 'dummy_unit_test.sv').createNewFile()
+
+        when:
+        def result = newGradleRunnerWithFakeRunSVunit(FAKE_RUNSVUNIT_EXIT_VALUE: '3')
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('testWithXrun')
+            .buildAndFail()
+
+        then:
+        result.task(":testWithXrun").outcome == FAILED
+        result.output.contains "SVUnit run failed with exit value 3"
+        result.output.contains "passing_test::PASSED"
+        result.output.contains "output.log.gz"
+    }
+
     def "can use provider in testCompile for svunit dependency"() {
         setup:
         buildFile.text = """
@@ -487,11 +882,11 @@ class SVUnitPluginSpec extends Specification  {
         result.task(":testWithXrun").outcome == SUCCESS
     }
 
-    def newGradleRunnerWithFakeRunSVunit() {
+    def newGradleRunnerWithFakeRunSVunit(Map<String, String> extraEnv = [:]) {
         def runSVUnitFake = new File(getClass().getResource('/runSVUnit').toURI())
         def env = System.getenv()
 
         return GradleRunner.create()
-            .withEnvironment(["PATH": [runSVUnitFake.parent, env.PATH].join(':')])
+            .withEnvironment(["PATH": [runSVUnitFake.parent, env.PATH].join(':')] + extraEnv)
     }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2024 the original author or authors.
+ * Copyright 2024-2026 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -169,6 +169,213 @@ class SystemVerilogPluginCompileOrderSpec extends Specification {
         lineWithFile0 > lineWithFile2
     }
 
+    def "can specify several groups of patterns for compile order"() {
+        ['top.sv', 'env.sv', 'agent_pkg.sv', 'seq_pkg.sv', 'base_pkg.sv', 'tb.sv', 'test.sv'].each {
+            new File(mainSv, it).createNewFile()
+        }
+
+        buildFile << """
+            sourceSets.main.sv.order {
+                first 'base_pkg.sv'
+                first '*_pkg.sv'
+                rank 1, 'env.sv'
+                rank(-1, 'test.sv')
+                last 'tb.sv', 'top.sv'
+            }
+        """
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':genXrunArgsFile', ':writeCompileSpecFile')
+            .build()
+
+        then:
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+        def lines = new File(testProjectDir.root, 'build/xrun_args.f').text.split('\n')
+        def indexOf = { String name -> lines.findIndexOf { it.endsWith("/${name}") } }
+        indexOf('base_pkg.sv') < indexOf('agent_pkg.sv')
+        indexOf('base_pkg.sv') < indexOf('seq_pkg.sv')
+        indexOf('agent_pkg.sv') < indexOf('test.sv')
+        indexOf('seq_pkg.sv') < indexOf('test.sv')
+        indexOf('test.sv') < indexOf('env.sv')
+        indexOf('env.sv') < indexOf('tb.sv')
+        indexOf('env.sv') < indexOf('top.sv')
+
+        and:
+        def compileSpecFile = new File(testProjectDir.root, 'build/compile-spec.json')
+        def svSourceFiles = new ObjectMapper().readTree(compileSpecFile).get("svSourceFiles")*.asText()
+        svSourceFiles[0].endsWith('base_pkg.sv')
+        svSourceFiles[3].endsWith('test.sv')
+        svSourceFiles[4].endsWith('env.sv')
+    }
+
+    def "can order source files by their package dependencies"() {
+        new File(mainSv, "a_test.sv") << """
+            module a_test;
+              import b_env_pkg::*;
+            endmodule
+        """
+        new File(mainSv, "b_env_pkg.sv") << """
+            package automatic b_env_pkg;
+              `include "b_env.svh"
+            endpackage
+        """
+        new File(mainSv, "b_env.svh") << """
+            class env;
+              c_agent_pkg::agent agent;
+            endclass
+        """
+        new File(mainSv, "c_agent_pkg.sv") << """
+            // Uses b_env_pkg:: only in a comment
+            package c_agent_pkg;
+              class agent; endclass
+            endpackage
+        """
+
+        buildFile << """
+            sourceSets.main.sv.order.byDependencies()
+        """
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':genXrunArgsFile', ':writeCompileSpecFile')
+            .build()
+
+        then:
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+        def lines = new File(testProjectDir.root, 'build/xrun_args.f').text.split('\n')
+        def indexOf = { String name -> lines.findIndexOf { it.endsWith("/${name}") } }
+        indexOf('c_agent_pkg.sv') < indexOf('b_env_pkg.sv')
+        indexOf('b_env_pkg.sv') < indexOf('a_test.sv')
+
+        and:
+        def compileSpecFile = new File(testProjectDir.root, 'build/compile-spec.json')
+        def svSourceFiles = new ObjectMapper().readTree(compileSpecFile).get("svSourceFiles")*.asText()
+        svSourceFiles.findIndexOf { it.endsWith('c_agent_pkg.sv') } < svSourceFiles.findIndexOf { it.endsWith('b_env_pkg.sv') }
+        svSourceFiles.findIndexOf { it.endsWith('b_env_pkg.sv') } < svSourceFiles.findIndexOf { it.endsWith('a_test.sv') }
+    }
+
+    def "dependency order is updated when a source file changes"() {
+        new File(mainSv, "a_pkg.sv") << "package a_pkg; endpackage\n"
+        File b = new File(mainSv, "b_pkg.sv")
+        b << "package b_pkg; endpackage\n"
+
+        buildFile << """
+            sourceSets.main.sv.order.byDependencies()
+        """
+
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':genXrunArgsFile')
+            .build()
+
+        new File(mainSv, "a_pkg.sv").text = "package a_pkg; import b_pkg::*; endpackage\n"
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':genXrunArgsFile')
+            .build()
+
+        then:
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+        def lines = new File(testProjectDir.root, 'build/xrun_args.f').text.split('\n')
+        lines.findIndexOf { it.endsWith('/b_pkg.sv') } < lines.findIndexOf { it.endsWith('/a_pkg.sv') }
+    }
+
+    def "new source files are added before files to compile last"() {
+        new File(mainSv, "file0.sv").createNewFile()
+        new File(mainSv, "file1.sv").createNewFile()
+
+        buildFile << """
+            sourceSets.main.sv.order.last 'file0.sv'
+        """
+
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':genXrunArgsFile')
+            .build()
+
+        new File(mainSv, "file2.sv").createNewFile()
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':genXrunArgsFile')
+            .build()
+
+        then:
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+        def xrunArgsFile = new File(testProjectDir.root, 'build/xrun_args.f')
+        def lines = xrunArgsFile.text.split('\n')
+
+        def lineWithFile0 = lines.findIndexOf { it.contains('file0.sv') }
+        lineWithFile0 != -1
+
+        def lineWithFile2 = lines.findIndexOf { it.contains('file2.sv') }
+        lineWithFile2 != -1
+
+        lineWithFile2 < lineWithFile0
+    }
+
+    def "added source files are placed the same way as in a clean build"() {
+        new File(mainSv, "another_file.sv").createNewFile()
+        new File(mainSv, "file0.sv").createNewFile()
+        new File(mainSv, "file2.sv").createNewFile()
+
+        buildFile << """
+            sourceSets.main.sv.order.first 'file*.sv'
+        """
+
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':genXrunArgsFile')
+            .build()
+
+        new File(mainSv, "file1.sv").createNewFile()
+        new File(mainSv, "a_file.sv").createNewFile()
+
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':genXrunArgsFile')
+            .build()
+        def xrunArgsFile = new File(testProjectDir.root, 'build/xrun_args.f')
+        def incremental = xrunArgsFile.text
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':genXrunArgsFile', '--rerun-tasks')
+            .build()
+
+        then:
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+        xrunArgsFile.text == incremental
+        def lines = incremental.split('\n')
+
+        def lineWithFile0 = lines.findIndexOf { it.contains('file0.sv') }
+        def lineWithFile1 = lines.findIndexOf { it.contains('file1.sv') }
+        def lineWithFile2 = lines.findIndexOf { it.contains('file2.sv') }
+        def lineWithAFile = lines.findIndexOf { it.contains('a_file.sv') }
+        def lineWithAnotherFile = lines.findIndexOf { it.contains('another_file.sv') }
+
+        lineWithFile0 < lineWithFile1
+        lineWithFile1 < lineWithFile2
+        lineWithFile2 < lineWithAFile
+        lineWithAFile < lineWithAnotherFile
+    }
+
     def "compile spec considers source file order"() {
         new File(mainSv, "file0.sv").createNewFile()
         new File(mainSv, "file1.sv").createNewFile()
@@ -195,4 +402,41 @@ class SystemVerilogPluginCompileOrderSpec extends Specification {
         svSourceFiles.get(1).asText().contains 'file2.sv'
         svSourceFiles.get(2).asText().contains 'file0.sv'
     }
+
+    def "order rules match paths relative to the innermost of nested source directories"() {
+        new File(mainSv, "a_file.sv").createNewFile()
+        new File(mainSv, "nested").mkdir()
+        new File(mainSv, "nested/file1.sv").createNewFile()
+
+        buildFile << """
+            sourceSets.main.sv.srcDirs 'src/main/sv/nested'
+            sourceSets.main.sv.order.first 'file1.sv'
+        """
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':genXrunArgsFile', ':writeCompileSpecFile')
+            .build()
+
+        then:
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+        def lines = new File(testProjectDir.root, 'build/xrun_args.f').text.split('\n')
+
+        def lineWithFile1 = lines.findIndexOf { it.contains('file1.sv') }
+        lineWithFile1 != -1
+
+        def lineWithAFile = lines.findIndexOf { it.contains('a_file.sv') }
+        lineWithAFile != -1
+
+        lineWithFile1 < lineWithAFile
+
+        and:
+        result.task(":writeCompileSpecFile").outcome == SUCCESS
+        def compileSpecFile = new File(testProjectDir.root, 'build/compile-spec.json')
+        JsonNode svSourceFiles = new ObjectMapper().readTree(compileSpecFile).get("svSourceFiles")
+        svSourceFiles.get(0).asText().contains 'file1.sv'
+        svSourceFiles.get(1).asText().contains 'a_file.sv'
+    }
 }
@@ -26,8 +26,10 @@ import spock.lang.Specification
 import java.nio.file.Files
 import java.util.zip.ZipFile
 
+import static org.gradle.testkit.runner.TaskOutcome.FROM_CACHE
 import static org.gradle.testkit.runner.TaskOutcome.NO_SOURCE
 import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
+import static org.gradle.testkit.runner.TaskOutcome.UP_TO_DATE
 
 class SystemVerilogPluginSpec extends Specification {
     @Rule TemporaryFolder testProjectDir = new TemporaryFolder()
@@ -538,6 +540,274 @@ class SystemVerilogPluginSpec extends Specification {
         }
     }
 
+    def "'genXrunArgsFile' task adds new source files to args file"() {
+        File sv = testProjectDir.newFolder('src', 'main', 'sv')
+        new File(sv, 'dummy.sv').createNewFile()
+
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genXrunArgsFile')
+            .build()
+
+        new File(sv, 'other.sv').createNewFile()
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genXrunArgsFile')
+            .build()
+
+        then:
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+        def lines = new File(testProjectDir.root, 'build/xrun_args.f').text.split('\n')
+        lines.findAll { it.contains('dummy.sv') }.size() == 1
+        lines.findAll { it.contains('other.sv') }.size() == 1
+        lines.findIndexOf { it.contains('other.sv') } < lines.findIndexOf { it.contains('-endlib') }
+    }
+
+    def "'genXrunArgsFile' task writes the same args file after adding a source file as a clean build"() {
+        File sv = testProjectDir.newFolder('src', 'main', 'sv')
+        new File(sv, 'a.sv').createNewFile()
+        new File(sv, 'c.sv').createNewFile()
+
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genXrunArgsFile')
+            .build()
+
+        new File(sv, 'b.sv').createNewFile()
+
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genXrunArgsFile')
+            .build()
+        def incremental = new File(testProjectDir.root, 'build/xrun_args.f').text
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genXrunArgsFile', '--rerun-tasks')
+            .build()
+
+        then:
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+        incremental.contains('b.sv')
+        new File(testProjectDir.root, 'build/xrun_args.f').text == incremental
+    }
+
+    def "'genXrunArgsFile' task removes deleted source files from args file"() {
+        File sv = testProjectDir.newFolder('src', 'main', 'sv')
+        new File(sv, 'dummy.sv').createNewFile()
+        new File(sv, 'other.sv').createNewFile()
+
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genXrunArgsFile')
+            .build()
+
+        new File(sv, 'other.sv').delete()
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genXrunArgsFile')
+            .build()
+
+        then:
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+        def text = new File(testProjectDir.root, 'build/xrun_args.f').text
+        text.contains('dummy.sv')
+        !text.contains('other.sv')
+    }
+
+    def "'genXrunArgsFile' task adds private include directory once it contains files"() {
+        File sv = testProjectDir.newFolder('sv')
+        new File(sv, 'dummy.sv').createNewFile()
+        File otherSv = testProjectDir.newFolder('src', 'main', 'sv')
+
+        buildFile << """
+            sourceSets {
+                main {
+                    sv {
+                        srcDirs 'sv', 'src/main/sv'
+                    }
+                }
+            }
+        """
+
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genXrunArgsFile')
+            .build()
+
+        new File(otherSv, 'some_header.svh').createNewFile()
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genXrunArgsFile')
+            .build()
+
+        then:
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+        def lines = new File(testProjectDir.root, 'build/xrun_args.f').text.split("\n")
+        lines.any { it.contains('-incdir') && it.endsWith('src/main/sv') }
+    }
+
+    def "'genXrunArgsFile' task adds private include directory filled by another task in the same build"() {
+        File sv = testProjectDir.newFolder('sv')
+        new File(sv, 'dummy.sv').createNewFile()
+        testProjectDir.newFolder('src', 'main', 'sv')
+
+        buildFile << """
+            sourceSets {
+                main {
+                    sv {
+                        srcDirs 'sv', 'src/main/sv'
+                    }
+                }
+            }
+
+            def addHeader = tasks.register('addHeader') {
+                dependsOn 'genQrunArgsFile'
+                doLast {
+                    file('src/main/sv/some_header.svh').text = ''
+                }
+            }
+            tasks.named('genXrunArgsFile') {
+                dependsOn addHeader
+            }
+        """
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genXrunArgsFile')
+            .build()
+
+        then:
+        result.task(":genQrunArgsFile").outcome == SUCCESS
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+        def lines = new File(testProjectDir.root, 'build/xrun_args.f').text.split("\n")
+        lines.any { it.contains('-incdir') && it.endsWith('src/main/sv') }
+    }
+
+    def "include directories are only checked once for all tools"() {
+        File sv = testProjectDir.newFolder('src', 'main', 'sv')
+        new File(sv, 'dummy.sv').createNewFile()
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genXrunArgsFile', 'genQrunArgsFile', '--info')
+            .build()
+
+        then:
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+        result.task(":genQrunArgsFile").outcome == SUCCESS
+        result.output =~ /HDVL directory content index: [1-9]\d* hits/
+    }
+
+    def "sources are scanned once for all tools"() {
+        File sv = testProjectDir.newFolder('src', 'main', 'sv')
+        new File(sv, 'dummy.sv').createNewFile()
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genXrunArgsFile', 'genQrunArgsFile', '--info')
+            .build()
+
+        then:
+        result.output.contains("HDVL args file model cache: 1 hits, 1 misses")
+        new File(testProjectDir.root, 'build/xrun_args.f').text.contains('src/main/sv/dummy.sv')
+        new File(testProjectDir.root, 'build/qrun_args.f').text.contains('src/main/sv/dummy.sv')
+    }
+
+    def "'genXrunArgsFile' task adds private include directory once it contains files when rerun"() {
+        File sv = testProjectDir.newFolder('sv')
+        new File(sv, 'dummy.sv').createNewFile()
+        File otherSv = testProjectDir.newFolder('src', 'main', 'sv')
+
+        buildFile << """
+            sourceSets {
+                main {
+                    sv {
+                        srcDirs 'sv', 'src/main/sv'
+                    }
+                }
+            }
+        """
+
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genXrunArgsFile')
+            .build()
+
+        new File(otherSv, 'some_header.svh').createNewFile()
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genXrunArgsFile', '--rerun-tasks')
+            .build()
+
+        then:
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+        def lines = new File(testProjectDir.root, 'build/xrun_args.f').text.split("\n")
+        lines.any { it.contains('-incdir') && it.endsWith('src/main/sv') }
+    }
+
+    def "generated args files keep their timestamp if unchanged when 'writeIfChanged' is set"() {
+        File sv = testProjectDir.newFolder('src', 'main', 'sv')
+        new File(sv, 'dummy.sv').createNewFile()
+
+        buildFile << """
+            hdvl {
+                writeIfChanged = true
+            }
+        """
+
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genFullXrunArgsFile')
+            .build()
+
+        def argsFile = new File(testProjectDir.root, 'build/xrun_args.f')
+        def fullArgsFile = new File(testProjectDir.root, 'build/full_xrun_args.f')
+        argsFile.setLastModified(0)
+        fullArgsFile.setLastModified(0)
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genFullXrunArgsFile', '--rerun-tasks')
+            .build()
+
+        then:
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+        result.task(":genFullXrunArgsFile").outcome == SUCCESS
+        argsFile.lastModified() == 0
+        fullArgsFile.lastModified() == 0
+        argsFile.text.contains('dummy.sv')
+    }
+
     def "'genFullXrunArgsFile' task consumes output of 'genXrunArgsFile"() {
         File sv = testProjectDir.newFolder('src', 'main', 'sv')
         new File(sv, 'dummy.sv').createNewFile()
@@ -556,6 +826,42 @@ class SystemVerilogPluginSpec extends Specification {
         new File(testProjectDir.root, 'build/full_xrun_args.f').text.contains('build/xrun_args.f')
     }
 
+    def "'genXrunArgsFile' task writes relative paths when 'compactArgsFiles' is set"() {
+        File sv = testProjectDir.newFolder('src', 'main', 'sv', 'some', 'deeply', 'nested', 'dir')
+        (1..100).each { new File(sv, "file_${it}.sv").createNewFile() }
+
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genXrunArgsFile')
+            .build()
+        def absoluteSize = new File(testProjectDir.root, 'build/xrun_args.f').length()
+
+        buildFile << """
+            hdvl {
+                compactArgsFiles = true
+            }
+        """
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('genFullXrunArgsFile')
+            .build()
+
+        then:
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+        def argsFile = new File(testProjectDir.root, 'build/xrun_args.f')
+        def lines = argsFile.text.split("\n")
+        lines[0] == '// hdvl:relative-paths'
+        lines.contains('  ../src/main/sv/some/deeply/nested/dir/file_1.sv')
+        argsFile.length() < absoluteSize
+
+        and:
+        new File(testProjectDir.root, 'build/full_xrun_args.f').text.contains("-F ${argsFile.absolutePath}")
+    }
+
     def "'argsFiles' artifacts produced by direct dependencies are consumed by main project in 'genFullXrunArgsFile'"() {
         setup:
         buildFile.delete()
@@ -684,6 +990,358 @@ class SystemVerilogPluginSpec extends Specification {
         mainProjectIdx != -1
     }
 
+    def "'argsFiles' are consumed in dependency order for diamond dependencies"() {
+        setup:
+        buildFile.delete()
+
+        File settingsFile = testProjectDir.newFile('settings.gradle')
+        settingsFile << """
+            include 'bottom'
+            include 'left'
+            include 'right'
+            include 'mainProject'
+        """
+
+        newStandardProject('bottom')
+
+        File leftBuildFile = newStandardProject('left')
+        leftBuildFile << """
+            dependencies {
+                compile project(':bottom')
+            }
+        """
+
+        File rightBuildFile = newStandardProject('right')
+        rightBuildFile << """
+            dependencies {
+                compile project(':bottom')
+            }
+        """
+
+        File mainProjectBuildFile = newStandardProject('mainProject')
+        mainProjectBuildFile << """
+            dependencies {
+                compile project(':bottom')
+                compile project(':left')
+                compile project(':right')
+            }
+        """
+
+        when:
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':mainProject:genFullXrunArgsFile', ':mainProject:genFullQrunArgsFile')
+            .build()
+
+        then:
+        ['xrun', 'qrun'].each { tool ->
+            def lines = new File(testProjectDir.root, "mainProject/build/full_${tool}_args.f").text.split('\n')
+            def indexOf = { String project -> lines.findIndexOf { it.contains("${project}/build/${tool}_args.f") } }
+            assert indexOf('bottom') != -1
+            assert indexOf('bottom') < indexOf('left')
+            assert indexOf('bottom') < indexOf('right')
+            assert indexOf('left') < indexOf('mainProject')
+            assert indexOf('right') < indexOf('mainProject')
+        }
+    }
+
+    def "'genFullXrunArgsFile' inlines args files when 'flattenFullArgsFiles' is set"() {
+        setup:
+        buildFile.delete()
+
+        File settingsFile = testProjectDir.newFile('settings.gradle')
+        settingsFile << """
+            include 'dependency'
+            include 'mainProject'
+        """
+
+        newStandardProject('dependency') << """
+            hdvl {
+                compactArgsFiles = true
+            }
+        """
+        testProjectDir.newFolder('dependency', 'src', 'main', 'sv_headers')
+        testProjectDir.newFile('dependency/src/main/sv_headers/dependency.svh')
+
+        newStandardProject('mainProject') << """
+            hdvl {
+                flattenFullArgsFiles = true
+            }
+
+            dependencies {
+                compile project(':dependency')
+            }
+        """
+
+        when:
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':mainProject:genFullXrunArgsFile')
+            .build()
+
+        then:
+        def lines = new File(testProjectDir.root, 'mainProject/build/full_xrun_args.f').text.split('\n')
+        !lines.any { it.startsWith('-f ') || it.startsWith('-F ') }
+        lines.count { it == '-makelib worklib' } == 2
+        lines.count { it.startsWith('-incdir /') && it.endsWith('/dependency/src/main/sv_headers') } == 1
+        def dependencyIdx = lines.findIndexOf { it.startsWith('  /') && it.endsWith('/dependency/src/main/sv/dependency.sv') }
+        dependencyIdx != -1
+        lines.findIndexOf { it.endsWith('mainProject/src/main/sv/mainProject.sv') } > dependencyIdx
+    }
+
+    def "'compileWithXrun' compiles each project into its own library"() {
+        setup:
+        buildFile.delete()
+
+        File settingsFile = testProjectDir.newFile('settings.gradle')
+        settingsFile << """
+            include 'dependency'
+            include 'mainProject'
+        """
+
+        newStandardProject('dependency')
+
+        newStandardProject('mainProject') << """
+            dependencies {
+                compile project(':dependency')
+            }
+        """
+
+        when:
+        def result = newGradleRunnerWithFakeSimulator()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':mainProject:compileWithXrun')
+            .build()
+
+        then:
+        result.task(":dependency:compileWithXrun").outcome == SUCCESS
+        result.task(":mainProject:compileWithXrun").outcome == SUCCESS
+        def dependencyLibrary = new File(testProjectDir.root, 'dependency/build/compiled_xrun/dependency')
+        new File(dependencyLibrary, 'compiled').exists()
+        new File(testProjectDir.root, 'mainProject/build/compiled_xrun/mainProject/compiled').exists()
+        def log = new File(testProjectDir.root, 'mainProject/build/tmp/compileWithXrun/xrun.log').text
+        log.contains("-reflib ${dependencyLibrary.absolutePath}")
+
+        when:
+        new File(testProjectDir.root, 'mainProject/src/main/sv/mainProject.sv') << "// changed"
+        result = newGradleRunnerWithFakeSimulator()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':mainProject:compileWithXrun')
+            .build()
+
+        then:
+        result.task(":dependency:compileWithXrun").outcome == UP_TO_DATE
+        result.task(":mainProject:compileWithXrun").outcome == SUCCESS
+    }
+
+    def "'compileWithQrun' compiles each project into its own library using qrun options"() {
+        setup:
+        buildFile.delete()
+
+        File settingsFile = testProjectDir.newFile('settings.gradle')
+        settingsFile << """
+            include 'dependency'
+            include 'mainProject'
+        """
+
+        newStandardProject('dependency')
+        testProjectDir.newFolder('dependency', 'src', 'main', 'sv_headers')
+        testProjectDir.newFile('dependency/src/main/sv_headers/dependency.svh')
+
+        newStandardProject('mainProject') << """
+            dependencies {
+                compile project(':dependency')
+            }
+        """
+
+        when:
+        def result = newGradleRunnerWithFakeSimulator()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(':mainProject:compileWithQrun')
+            .build()
+
+        then:
+        result.task(":dependency:compileWithQrun").outcome == SUCCESS
+        result.task(":mainProject:compileWithQrun").outcome == SUCCESS
+        def dependencyLibrary = new File(testProjectDir.root, 'dependency/build/compiled_qrun/dependency')
+        new File(dependencyLibrary, 'compiled').exists()
+        def mainLibrary = new File(testProjectDir.root, 'mainProject/build/compiled_qrun/mainProject')
+        new File(mainLibrary, 'compiled').exists()
+        def log = new File(testProjectDir.root, 'mainProject/build/tmp/compileWithQrun/qrun.log').text
+        log.contains("-reflib ${dependencyLibrary.absolutePath}")
+        def compileArgs = new File(testProjectDir.root, 'mainProject/build/tmp/compileWithQrun/compile_args.f').text.split('\n')
+        compileArgs.any { it.startsWith('+incdir+/') && it.endsWith('/dependency/src/main/sv_headers') }
+        !compileArgs.any { it.startsWith('-incdir ') }
+        compileArgs.contains("-makelib ${mainLibrary.absolutePath}".toString())
+    }
+
+    def "compact args files and compile spec are reused from the build cache by another checkout"() {
+        setup:
+        buildFile.delete()
+        File cacheDir = testProjectDir.newFolder('build-cache')
+
+        def newCheckout = { String name ->
+            File checkout = testProjectDir.newFolder(name)
+            new File(checkout, 'settings.gradle') << """
+                buildCache {
+                    local {
+                        directory = '${cacheDir.absolutePath}'
+                    }
+                }
+            """
+            new File(checkout, 'build.gradle') << """
+                plugins {
+                    id 'com.verificationgentleman.gradle.hdvl.systemverilog'
+                }
+
+                hdvl {
+                    compactArgsFiles = true
+                }
+            """
+            File sv = testProjectDir.newFolder(name, 'src', 'main', 'sv')
+            new File(sv, 'main.sv') << "module main; endmodule"
+            File svHeaders = testProjectDir.newFolder(name, 'src', 'main', 'sv_headers')
+            new File(svHeaders, 'main.svh') << "// header"
+            return checkout
+        }
+        File firstCheckout = newCheckout('first')
+        File secondCheckout = newCheckout('second')
+
+        when:
+        def firstResult = GradleRunner.create()
+            .withProjectDir(firstCheckout)
+            .withPluginClasspath()
+            .withArguments('--build-cache', 'genXrunArgsFile', 'writeCompileSpecFile')
+            .build()
+        def secondResult = GradleRunner.create()
+            .withProjectDir(secondCheckout)
+            .withPluginClasspath()
+            .withArguments('--build-cache', 'genXrunArgsFile', 'writeCompileSpecFile')
+            .build()
+
+        then:
+        firstResult.task(":genXrunArgsFile").outcome == SUCCESS
+        firstResult.task(":writeCompileSpecFile").outcome == SUCCESS
+        secondResult.task(":genXrunArgsFile").outcome == FROM_CACHE
+        secondResult.task(":writeCompileSpecFile").outcome == FROM_CACHE
+        def argsFile = new File(secondCheckout, 'build/xrun_args.f')
+        argsFile.text == new File(firstCheckout, 'build/xrun_args.f').text
+        argsFile.text.contains('../src/main/sv/main.sv')
+        !argsFile.text.contains(firstCheckout.absolutePath)
+        !new File(secondCheckout, 'build/compile-spec.json').text.contains(firstCheckout.absolutePath)
+    }
+
+    def "args files with absolute paths are not cached"() {
+        setup:
+        File cacheDir = testProjectDir.newFolder('build-cache')
+        testProjectDir.newFile('settings.gradle') << """
+            buildCache {
+                local {
+                    directory = '${cacheDir.absolutePath}'
+                }
+            }
+        """
+        File sv = testProjectDir.newFolder('src', 'main', 'sv')
+        new File(sv, 'main.sv').createNewFile()
+
+        when:
+        GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('--build-cache', 'genXrunArgsFile')
+            .build()
+        new File(testProjectDir.root, 'build').deleteDir()
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('--build-cache', 'genXrunArgsFile')
+            .build()
+
+        then:
+        result.task(":genXrunArgsFile").outcome == SUCCESS
+    }
+
+    def "tasks are compatible with the configuration cache"() {
+        setup:
+        buildFile.delete()
+
+        File settingsFile = testProjectDir.newFile('settings.gradle')
+        settingsFile << """
+            include 'dependency'
+            include 'mainProject'
+        """
+
+        newStandardProject('dependency')
+        testProjectDir.newFolder('dependency', 'src', 'main', 'sv_headers')
+        testProjectDir.newFile('dependency/src/main/sv_headers/dependency.svh')
+
+        newStandardProject('mainProject') << """
+            dependencies {
+                compile project(':dependency')
+            }
+        """
+
+        def tasks = [':mainProject:genFullXrunArgsFile', ':mainProject:genFullQrunArgsFile',
+                     ':dependency:hdvlSourcesArchive']
+
+        when:
+        def firstResult = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(['--configuration-cache'] + tasks)
+            .build()
+        new File(testProjectDir.root, 'mainProject/build/full_xrun_args.f').delete()
+        def secondResult = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments(['--configuration-cache'] + tasks)
+            .build()
+
+        then:
+        firstResult.output.contains('Configuration cache entry stored.')
+        secondResult.output.contains('Reusing configuration cache.')
+        secondResult.task(':mainProject:genFullXrunArgsFile').outcome == SUCCESS
+        secondResult.task(':dependency:hdvlSourcesArchive').outcome == UP_TO_DATE
+        new File(testProjectDir.root, 'mainProject/build/full_xrun_args.f').text.contains('dependency/build/xrun_args.f')
+        def archive = new ZipFile(new File(testProjectDir.root, 'dependency/build/hdvl-sources.zip'))
+        archive.getEntry('src/main/sv/dependency.sv') != null
+        archive.getEntry('src/main/sv_headers/dependency.svh') != null
+        archive.getEntry('.gradle-hdvl/compile-spec.json') != null
+    }
+
+    def "no tasks are realized when they are not needed"() {
+        File sv = testProjectDir.newFolder('src', 'main', 'sv')
+        new File(sv, "main.sv").createNewFile()
+
+        buildFile << """
+            apply plugin: 'com.verificationgentleman.gradle.hdvl.c'
+
+            tasks.configureEach {
+                println "Realized task: \${it.name}"
+            }
+        """
+
+        when:
+        def result = GradleRunner.create()
+            .withProjectDir(testProjectDir.root)
+            .withPluginClasspath()
+            .withArguments('help')
+            .build()
+
+        then:
+        def realizedTasks = result.output.readLines()
+            .findAll { it.startsWith('Realized task: ') }
+            .collect { it - 'Realized task: ' }
+        realizedTasks.contains('help')
+        ['genXrunArgsFile', 'genQrunArgsFile', 'genFullXrunArgsFile', 'genFullQrunArgsFile', 'compileWithXrun',
+         'writeCompileSpecFile', 'hdvlSourcesArchive'].every { !realizedTasks.contains(it) }
+    }
+
     def "custom source set has own 'genXrunArgsFile' task"() {
         buildFile << """
             sourceSets {
@@ -1446,4 +2104,12 @@ class SystemVerilogPluginSpec extends Specification {
         dependencies[0].get('module').asText() == 'dependency-project'
         dependencies[0].get('version').get('requires').asText() == '1.0.0'
     }
+
+    def newGradleRunnerWithFakeSimulator() {
+        def xrunFake = new File(getClass().getResource('/xrun').toURI())
+        def env = System.getenv()
+
+        return GradleRunner.create()
+            .withEnvironment(["PATH": [xrunFake.parent, env.PATH].join(':')])
+    }
 }
@@ -16,46 +16,172 @@
 
 package com.verificationgentleman.gradle.hdvl;
 
+import com.verificationgentleman.gradle.hdvl.internal.ArgsFileFormat;
+import com.verificationgentleman.gradle.hdvl.internal.ArgsFileIndex;
+import com.verificationgentleman.gradle.hdvl.internal.ArgsFileModelCache;
+import com.verificationgentleman.gradle.hdvl.internal.CompiledFileOrder;
+import com.verificationgentleman.gradle.hdvl.internal.DirectoryContentIndex;
 import com.verificationgentleman.gradle.hdvl.internal.FileUtils;
+import com.verificationgentleman.gradle.hdvl.internal.GenArgsFileAction;
 import com.verificationgentleman.gradle.hdvl.systemverilog.FileOrder;
-import org.gradle.api.file.FileCollection;
-import org.gradle.api.file.FileTree;
-import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.file.*;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.*;
+import org.gradle.work.FileChange;
+import org.gradle.work.InputChanges;
+import org.gradle.workers.WorkerExecutor;
 
 import javax.inject.Inject;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
+/**
+ * Generates the args file for a source set.
+ *
+ * <p>The task is only cached when {@link #getCompact()} is set. Compact args files only contain paths relative to the
+ * args file, so they can be reused by another checkout of the same build, in which case the simulator resolves the
+ * paths against the new location when including the args file with '-F'.</p>
+ */
+@CacheableTask
 public abstract class AbstractGenArgsFile extends SourceTask {
 
     private RegularFileProperty destination;
+    private RegularFileProperty indexFile;
+    private final Property<Boolean> writeIfChanged;
+    private final Property<Boolean> compact;
+    private final ConfigurableFileCollection stableSources;
+    private final ConfigurableFileCollection sourceRoots;
     private FileCollection privateIncludeDirs;
     private FileCollection exportedIncludeDirs;
-    private FileCollection cSourceFiles = getProject().getObjects().fileCollection();
+    private final ObjectFactory objectFactory;
+    private FileCollection cSourceFiles;
+    private FileTree cSource;
 
     @Inject
     public AbstractGenArgsFile(ObjectFactory objectFactory) {
+        this.objectFactory = objectFactory;
+        cSourceFiles = objectFactory.fileCollection();
+        cSource = cSourceFiles.getAsFileTree();
         destination = objectFactory.fileProperty();
+        indexFile = objectFactory.fileProperty().convention(
+                getProjectLayout().getBuildDirectory().file("tmp/" + getName() + "/args-file-index"));
+        stableSources = objectFactory.fileCollection().from((Callable<FileTree>) this::getSource);
+        writeIfChanged = objectFactory.property(Boolean.class).convention(false);
+        compact = objectFactory.property(Boolean.class).convention(false);
+        sourceRoots = objectFactory.fileCollection();
+        getOutputs().cacheIf("the args file only contains relative paths", task -> compact.get());
     }
 
+    @Inject
+    protected abstract ProjectLayout getProjectLayout();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
     @OutputFile
     public RegularFileProperty getDestination() {
         return destination;
     }
 
+    /**
+     * The entries written to the args file by the previous execution, used to update the args file incrementally.
+     */
+    @LocalState
+    public RegularFileProperty getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * Whether to leave the args file untouched if its contents didn't change.
+     */
+    @Internal
+    public Property<Boolean> getWriteIfChanged() {
+        return writeIfChanged;
+    }
+
+    /**
+     * Whether to write paths relative to the args file instead of absolute paths.
+     *
+     * @see ArgsFileFormat
+     */
+    @Input
+    public Property<Boolean> getCompact() {
+        return compact;
+    }
+
     @Input
     @Optional
     public abstract Property<FileOrder> getSvOrder();
 
+    /**
+     * Caches which include directories contain files, across all tasks of the build.
+     */
+    @Internal
+    public abstract Property<DirectoryContentIndex> getDirectoryContentIndex();
+
+    /**
+     * Identifies the source set the args file is generated for. Tasks for other tools with the same id and the same
+     * sources reuse the sources scanned by the first one of them to run, through {@link #getModelCache()}.
+     */
+    @Internal
+    public abstract Property<String> getSourceSetId();
+
+    @Internal
+    public abstract Property<ArgsFileModelCache> getModelCache();
+
+    /**
+     * The directories containing the sources. The paths of the sources are only tracked relative to these
+     * directories, so their locations have to be tracked separately, using {@link #getSourceRootPaths()}.
+     */
+    @Internal
+    public ConfigurableFileCollection getSourceRoots() {
+        return sourceRoots;
+    }
+
+    /**
+     * The locations of the source and include directories, as they are written to the args file.
+     */
+    @Input
+    public List<String> getSourceRootPaths() {
+        List<String> result = new ArrayList<>();
+        for (File f: getSourceRoots())
+            result.add(path(f));
+        for (File f: getPrivateIncludeDirs())
+            result.add(path(f));
+        for (File f: getExportedIncludeDirs())
+            result.add(path(f));
+        return result;
+    }
+
+    @Override
+    @Internal
+    public FileTree getSource() {
+        return super.getSource();
+    }
+
+    /**
+     * The same files as {@link #getSource()}, but always as the same file collection instance, which is needed to
+     * query it for incremental changes.
+     */
+    @InputFiles
+    @SkipWhenEmpty
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getStableSources() {
+        return stableSources;
+    }
+
     @InputFiles
     @SkipWhenEmpty
-    @PathSensitive(PathSensitivity.ABSOLUTE)
+    @PathSensitive(PathSensitivity.RELATIVE)
     public FileCollection getPrivateIncludeDirs() {
         return privateIncludeDirs;
     }
@@ -66,7 +192,7 @@ public abstract class AbstractGenArgsFile extends SourceTask {
 
     @InputFiles
     @SkipWhenEmpty
-    @PathSensitive(PathSensitivity.ABSOLUTE)
+    @PathSensitive(PathSensitivity.RELATIVE)
     public FileCollection getExportedIncludeDirs() {
         return exportedIncludeDirs;
     }
@@ -77,9 +203,9 @@ public abstract class AbstractGenArgsFile extends SourceTask {
 
     @InputFiles
     @SkipWhenEmpty
-    @PathSensitive(PathSensitivity.ABSOLUTE)
+    @PathSensitive(PathSensitivity.RELATIVE)
     public FileTree getCSource() {
-        return cSourceFiles.getAsFileTree();
+        return cSource;
     }
 
     public void setCSource(FileTree source) {
@@ -87,71 +213,182 @@ public abstract class AbstractGenArgsFile extends SourceTask {
     }
 
     public void setCSource(Object source) {
-        cSourceFiles = getProject().getObjects().fileCollection().from(source);
+        cSourceFiles = objectFactory.fileCollection().from(source);
+        cSource = cSourceFiles.getAsFileTree();
     }
 
     @TaskAction
-    protected void generate() {
+    protected void generate(InputChanges inputChanges) {
+        if (inputChanges.isIncremental() && generateIncrementally(inputChanges))
+            return;
+
+        // Scanning all sources can take a while, so it's done by a worker, letting other tasks run in the meantime
+        getWorkerExecutor().noIsolation().submit(GenArgsFileAction.class, parameters -> {
+            parameters.getSvSourceFiles().from(getSource());
+            parameters.getSourceRoots().from(getSourceRoots());
+            parameters.getPrivateIncludeDirs().from(getPrivateIncludeDirs());
+            parameters.getExportedIncludeDirs().from(getExportedIncludeDirs());
+            parameters.getCSourceFiles().from(getCSource());
+            parameters.getSvOrder().set(getSvOrder());
+            parameters.getDirectoryContentIndex().set(getDirectoryContentIndex());
+            if (getSourceSetId().isPresent())
+                parameters.getModelCache().set(getModelCache());
+            parameters.getModelKey().set(getModelKey());
+            parameters.getIndexKey().set(getIndexKey());
+            parameters.getLibraryName().set(getLibName());
+            parameters.getIncludeDirOption().set(getIncdirOpt(""));
+            parameters.getIndexFile().set(indexFile);
+            parameters.getDestination().set(destination);
+            parameters.getCompact().set(compact);
+            parameters.getWriteIfChanged().set(writeIfChanged);
+            parameters.getTemporaryDir().set(getTemporaryDir());
+        });
+    }
+
+    /**
+     * Updates the args file written by the previous execution, if possible.
+     *
+     * @return false if the args file has to be generated from scratch
+     */
+    private boolean generateIncrementally(InputChanges inputChanges) {
         try {
-            writeArgsFile();
+            ArgsFileIndex index = ArgsFileIndex.load(indexFile.get().getAsFile());
+            if (index == null || !applyChanges(index, inputChanges))
+                return false;
+            GenArgsFileAction.write(index, destination.get().getAsFile(), compact.get(), writeIfChanged.get(),
+                    getLibName(), getIncdirOpt(""));
+            index.save(indexFile.get().getAsFile());
         } catch (IOException e) {
-            System.out.println("Could not create args file");
+            throw new UncheckedIOException("Could not create args file", e);
         }
+        return true;
     }
 
-    private void writeArgsFile() throws IOException {
-        FileWriter writer = new FileWriter(destination.get().getAsFile());
-        writeExportedHeaders(writer);
-        writer.write("-makelib " + getLibName() + "\n");
-        for (File f: getPrivateIncludeDirs().filter(FileUtils::hasFiles))
-            writer.write("  " + getIncdirOpt(f.getAbsolutePath()) + "\n");
-        for (File f: getOrderedSystemVerilogSourceFiles())
-            writer.write("  " + f.getAbsolutePath() + "\n");
-        for (File f: getCSource())
-            writer.write("  " + f.getAbsolutePath() + "\n");
-        writer.write("-endlib\n");
-        writer.close();
+    // Everything the scanned sources depend on, other than the contents of the source directories
+    private String getModelKey() {
+        String key = getSourceSetId().getOrElse(getPath())
+                + " exported=" + getExportedIncludeDirs().getFiles()
+                + " private=" + getPrivateIncludeDirs().getFiles()
+                + " includes=" + getIncludes() + " excludes=" + getExcludes();
+        return key + " order=" + getCompiledSvOrder();
     }
 
-    // TODO Implement correct exported dir handling
-    // Adding an '-incdir' outside of '-makelib' for each exported header dir will make it visible to other '-makelibs'
-    // that declare a dependency on this project. It will also make it visible to other projects that haven't declared
-    // a dependency on this project. If such projects include headers from this project, there will be no compile error.
-    // This isn't consistent with what would happen in a multi-step compilation flow, where an error would be issued.
-    private void writeExportedHeaders(FileWriter writer) throws IOException {
-        for (File f: getExportedIncludeDirs().filter(FileUtils::hasFiles))
-            writer.write(getIncdirOpt(f.getAbsolutePath()) + "\n");
-    }
+    /**
+     * Updates the index with the changes since the previous execution.
+     *
+     * @return false if the changes can't be applied incrementally and the index has to be rebuilt from scratch
+     */
+    private boolean applyChanges(ArgsFileIndex index, InputChanges inputChanges) {
+        if (!index.getKey().equals(getIndexKey()))
+            return false;
 
-    @Internal
-    protected abstract String getLibName();
+        // Any change to a source file or header could change the dependencies
+        CompiledFileOrder order = getCompiledSvOrder();
+        if (order.isByDependencies() && (hasChanges(inputChanges, getStableSources())
+                || hasChanges(inputChanges, getPrivateIncludeDirs())
+                || hasChanges(inputChanges, getExportedIncludeDirs())))
+            return false;
 
-    protected abstract String getIncdirOpt(String incdirPath);
+        if (!updateIncludeDirs(index.getExportedIncludeDirs(), getExportedIncludeDirs(), inputChanges))
+            return false;
+        if (!updateIncludeDirs(index.getPrivateIncludeDirs(), getPrivateIncludeDirs(), inputChanges))
+            return false;
 
-    private Iterable<File> getOrderedSystemVerilogSourceFiles() {
-        if (!getSvOrder().isPresent() || (getSvOrder().get().getFirst() == null && getSvOrder().get().getLast() == null))
-            return getSource();
+        // The index keeps the files of each rank sorted, so added files end up where a full scan would put them
+        List<File> sourceDirs = new ArrayList<>(getSourceRoots().getFiles());
+        sourceDirs.addAll(getPrivateIncludeDirs().getFiles());
+        for (FileChange change: inputChanges.getFileChanges(getStableSources())) {
+            if (change.getFileType() == FileType.DIRECTORY)
+                continue;
+            switch (change.getChangeType()) {
+                case ADDED:
+                    Integer rank = order.getRank(change.getFile(), sourceDirs);
+                    index.addSvSourceFile(change.getFile(), rank != null ? rank : 0);
+                    break;
+                case REMOVED:
+                    index.removeSvSourceFile(change.getFile());
+                    break;
+                case MODIFIED:
+                    // Only the path ends up in the args file
+                    break;
+            }
+        }
 
-        FileTree firstFiles = newEmptyFileTree();
-        FileTree lastFiles = newEmptyFileTree();
+        for (FileChange change: inputChanges.getFileChanges(getCSource())) {
+            if (change.getFileType() == FileType.DIRECTORY)
+                continue;
+            switch (change.getChangeType()) {
+                case ADDED:
+                    index.getCSourceFiles().add(change.getFile());
+                    break;
+                case REMOVED:
+                    index.getCSourceFiles().remove(change.getFile());
+                    break;
+                case MODIFIED:
+                    break;
+            }
+        }
 
-        String first = getSvOrder().get().getFirst();
-        if (first != null)
-            firstFiles = getSource().matching(patternFilterable -> patternFilterable.include(first));
+        return true;
+    }
 
-        String last = getSvOrder().get().getLast();
-        if (last != null)
-            lastFiles = getSource().matching(patternFilterable -> patternFilterable.include(last));
+    private static boolean hasChanges(InputChanges inputChanges, FileCollection files) {
+        for (FileChange change: inputChanges.getFileChanges(files))
+            if (change.getFileType() != FileType.DIRECTORY)
+                return true;
+        return false;
+    }
 
-        List<File> result = new ArrayList<>();
-        result.addAll(firstFiles.getFiles());
-        result.addAll(getSource().minus(firstFiles).minus(lastFiles).getFiles());
-        result.addAll(lastFiles.getFiles());
+    /**
+     * Checks again whether the include directories affected by a change contain any files.
+     *
+     * @return false if the set of include directories itself changed
+     */
+    private boolean updateIncludeDirs(Map<File, Boolean> indexedDirs, FileCollection includeDirs,
+            InputChanges inputChanges) {
+        if (!new ArrayList<>(indexedDirs.keySet()).equals(new ArrayList<>(includeDirs.getFiles())))
+            return false;
 
-        return result;
+        Set<File> changedDirs = new HashSet<>();
+        for (FileChange change: inputChanges.getFileChanges(includeDirs)) {
+            // Include directories can be nested, in which case a change affects all of them
+            boolean contained = false;
+            for (File dir: indexedDirs.keySet()) {
+                if (FileUtils.contains(dir, change.getFile())) {
+                    changedDirs.add(dir);
+                    contained = true;
+                }
+            }
+            if (!contained)
+                return false;
+            if (getDirectoryContentIndex().isPresent())
+                getDirectoryContentIndex().get().invalidate(change.getFile());
+        }
+        for (File dir: changedDirs)
+            indexedDirs.put(dir, hasFiles(dir));
+        return true;
+    }
+
+    private boolean hasFiles(File dir) {
+        if (getDirectoryContentIndex().isPresent())
+            return getDirectoryContentIndex().get().hasFiles(dir);
+        return FileUtils.hasFiles(dir);
+    }
+
+    private String getIndexKey() {
+        return getLibName() + " " + getIncdirOpt("") + " order=" + getCompiledSvOrder();
     }
 
-    private FileTree newEmptyFileTree() {
-        return getProject().files().getAsFileTree();
+    private CompiledFileOrder getCompiledSvOrder() {
+        return CompiledFileOrder.compile(getSvOrder().getOrNull());
     }
+
+    private String path(File file) {
+        return ArgsFileFormat.path(file, destination.get().getAsFile(), compact.get());
+    }
+
+    @Internal
+    protected abstract String getLibName();
+
+    protected abstract String getIncdirOpt(String incdirPath);
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl;
+
+import com.verificationgentleman.gradle.hdvl.internal.ArgsFileFlattener;
+import com.verificationgentleman.gradle.hdvl.internal.ArgsFileFormat;
+import com.verificationgentleman.gradle.hdvl.internal.OutputFiles;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.*;
+import org.gradle.process.ExecOperations;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles the sources of a project into their own library, using the already compiled libraries of its
+ * dependencies.
+ *
+ * <p>The library is declared in the project's args file by a '-makelib' block, which is compiled into
+ * {@link #getLibraryDir()} instead. The exported include directories of all dependencies are passed as well, while
+ * their libraries are only referenced using '-reflib'. As long as a project's sources and the libraries of its
+ * dependencies don't change, its library doesn't have to be compiled again.</p>
+ */
+public abstract class CompileLibrary extends DefaultTask {
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    /**
+     * The args file of the project, containing its '-makelib' block.
+     */
+    @InputFile
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public abstract RegularFileProperty getArgsFile();
+
+    /**
+     * The args files of the dependencies, from which only the exported include directories are used.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public abstract ConfigurableFileCollection getDependencyArgsFiles();
+
+    /**
+     * The files listed in the args file, i.e. the source files and the contents of the include directories.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public abstract ConfigurableFileCollection getSources();
+
+    /**
+     * The compiled libraries of the dependencies.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.ABSOLUTE)
+    public abstract ConfigurableFileCollection getReferencedLibraries();
+
+    @Input
+    public abstract Property<String> getExecutable();
+
+    @Input
+    public abstract Property<String> getLibraryName();
+
+    @Input
+    public abstract ListProperty<String> getExtraArgs();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getDestinationDir();
+
+    @Internal
+    public Provider<Directory> getLibraryDir() {
+        return getDestinationDir().dir(getLibraryName());
+    }
+
+    @TaskAction
+    protected void compile() throws IOException {
+        File argsFile = new File(getTemporaryDir(), "compile_args.f");
+        List<String> lines = getCompileArgs();
+        OutputFiles.write(argsFile, false, writer -> {
+            for (String line: lines)
+                writer.write(line + "\n");
+        });
+
+        List<String> args = new ArrayList<>();
+        args.add("-compile");
+        args.add("-f");
+        args.add(argsFile.getAbsolutePath());
+        for (File library: getReferencedLibraries()) {
+            args.add("-reflib");
+            args.add(library.getAbsolutePath());
+        }
+        args.addAll(getExtraArgs().get());
+
+        getExecOperations().exec(execSpec -> {
+            execSpec.executable(getExecutable().get());
+            execSpec.args(args);
+            execSpec.workingDir(getTemporaryDir());
+        });
+    }
+
+    private List<String> getCompileArgs() throws IOException {
+        List<String> result = new ArrayList<>();
+
+        ArgsFileFlattener dependencies = new ArgsFileFlattener();
+        for (File dependencyArgsFile: getDependencyArgsFiles())
+            dependencies.add(dependencyArgsFile, ArgsFileFormat.hasRelativePaths(dependencyArgsFile));
+        boolean inLibrary = false;
+        for (String line: dependencies.getLines()) {
+            if (line.startsWith("-makelib "))
+                inLibrary = true;
+            else if (!inLibrary)
+                result.add(line);
+            else if (line.equals("-endlib"))
+                inLibrary = false;
+        }
+
+        ArgsFileFlattener project = new ArgsFileFlattener();
+        File projectArgsFile = getArgsFile().get().getAsFile();
+        project.add(projectArgsFile, ArgsFileFormat.hasRelativePaths(projectArgsFile));
+        for (String line: project.getLines()) {
+            if (line.startsWith("-makelib "))
+                result.add("-makelib " + getLibraryDir().get().getAsFile().getAbsolutePath());
+            else
+                result.add(line);
+        }
+        return result;
+    }
+}
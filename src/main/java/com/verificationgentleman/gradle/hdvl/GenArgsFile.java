@@ -0,0 +1,53 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl;
+
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+
+import javax.inject.Inject;
+
+/**
+ * Generates the args file of a source set for any tool, based on the args file dialect of the tool.
+ *
+ * @see Tool
+ */
+public abstract class GenArgsFile extends AbstractGenArgsFile {
+
+    @Inject
+    public GenArgsFile(ObjectFactory objectFactory) {
+        super(objectFactory);
+    }
+
+    @Input
+    public abstract Property<String> getLibraryName();
+
+    @Input
+    public abstract Property<String> getIncludeDirOption();
+
+    @Override
+    protected String getLibName() {
+        return getLibraryName().get();
+    }
+
+    @Override
+    protected String getIncdirOpt(String incdirPath) {
+        return getIncludeDirOption().get() + incdirPath;
+    }
+
+}
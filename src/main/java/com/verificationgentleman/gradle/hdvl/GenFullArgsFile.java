@@ -1,20 +1,30 @@
 package com.verificationgentleman.gradle.hdvl;
 
+import com.verificationgentleman.gradle.hdvl.internal.ArgsFileFlattener;
+import com.verificationgentleman.gradle.hdvl.internal.ArgsFileFormat;
+import com.verificationgentleman.gradle.hdvl.internal.ComponentOrder;
+import com.verificationgentleman.gradle.hdvl.internal.ComponentOrderCache;
+import com.verificationgentleman.gradle.hdvl.internal.OutputFiles;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
-import org.gradle.api.tasks.InputFile;
-import org.gradle.api.tasks.InputFiles;
-import org.gradle.api.tasks.OutputFile;
-import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.*;
 
 import javax.inject.Inject;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static java.util.Collections.reverse;
 
@@ -23,11 +33,21 @@ public class GenFullArgsFile extends DefaultTask {
     private final RegularFileProperty destination;
     private final RegularFileProperty source;
     private FileCollection argsFiles;
+    private final Property<Boolean> writeIfChanged;
+    private final Property<Boolean> flatten;
+    private final Property<ResolvedComponentResult> rootComponent;
+    private final SetProperty<ResolvedArtifactResult> resolvedArtifacts;
+    private final Property<ComponentOrderCache> componentOrderCache;
 
     @Inject
     public GenFullArgsFile(ObjectFactory objectFactory) {
         destination = objectFactory.fileProperty();
         source = objectFactory.fileProperty();
+        writeIfChanged = objectFactory.property(Boolean.class).convention(false);
+        flatten = objectFactory.property(Boolean.class).convention(false);
+        rootComponent = objectFactory.property(ResolvedComponentResult.class);
+        resolvedArtifacts = objectFactory.setProperty(ResolvedArtifactResult.class);
+        componentOrderCache = objectFactory.property(ComponentOrderCache.class);
     }
 
     @OutputFile
@@ -45,8 +65,54 @@ public class GenFullArgsFile extends DefaultTask {
         return argsFiles;
     }
 
+    /**
+     * Sets the args files of the dependencies. If they are given as a {@link Configuration}, they are included in the
+     * order given by its dependency graph.
+     */
     public void setArgsFiles(FileCollection argsFiles) {
         this.argsFiles = argsFiles;
+        if (argsFiles instanceof Configuration) {
+            Configuration configuration = (Configuration) argsFiles;
+            rootComponent.set(configuration.getIncoming().getResolutionResult().getRootComponent());
+            resolvedArtifacts.set(configuration.getIncoming().getArtifacts().getResolvedArtifacts());
+        }
+    }
+
+    /**
+     * The dependency graph the args files were resolved from, used to include them in dependency order.
+     */
+    @Input
+    @Optional
+    public Property<ResolvedComponentResult> getRootComponent() {
+        return rootComponent;
+    }
+
+    @Internal
+    public SetProperty<ResolvedArtifactResult> getResolvedArtifacts() {
+        return resolvedArtifacts;
+    }
+
+    @Internal
+    public Property<ComponentOrderCache> getComponentOrderCache() {
+        return componentOrderCache;
+    }
+
+    /**
+     * Whether to leave the args file untouched if its contents didn't change.
+     */
+    @Internal
+    public Property<Boolean> getWriteIfChanged() {
+        return writeIfChanged;
+    }
+
+    /**
+     * Whether to inline the args files instead of including them.
+     *
+     * @see ArgsFileFlattener
+     */
+    @Input
+    public Property<Boolean> getFlatten() {
+        return flatten;
     }
 
     @TaskAction
@@ -59,18 +125,58 @@ public class GenFullArgsFile extends DefaultTask {
     }
 
     private void writeArgsFile() throws IOException {
-        FileWriter writer = new FileWriter(destination.get().getAsFile());
-        for (File argsFile: getArgsFilesInDependencyOrder()) {
-            writer.write("-f " + argsFile.getAbsolutePath() + "\n");
+        if (flatten.get()) {
+            writeFlattenedArgsFile();
+            return;
         }
-        writer.write("-f " + source.get().getAsFile().getAbsolutePath() + "\n");
-        writer.close();
+
+        OutputFiles.write(destination.get().getAsFile(), writeIfChanged.get(), writer -> {
+            for (File argsFile: getArgsFilesInDependencyOrder()) {
+                writer.write(ArgsFileFormat.includeOpt(argsFile) + "\n");
+            }
+            writer.write(ArgsFileFormat.includeOpt(source.get().getAsFile()) + "\n");
+        });
+    }
+
+    private void writeFlattenedArgsFile() throws IOException {
+        ArgsFileFlattener flattener = new ArgsFileFlattener();
+        for (File argsFile: getArgsFilesInDependencyOrder())
+            flattener.add(argsFile, ArgsFileFormat.hasRelativePaths(argsFile));
+        flattener.add(source.get().getAsFile(), ArgsFileFormat.hasRelativePaths(source.get().getAsFile()));
+        OutputFiles.write(destination.get().getAsFile(), writeIfChanged.get(), flattener::writeTo);
+    }
+
+    // Args files of components that depend on each other are written dependencies first. Args files that don't
+    // belong to any component of the graph (e.g. file dependencies) come before all others.
+    private List<File> getArgsFilesInDependencyOrder() {
+        if (!rootComponent.isPresent())
+            return getArgsFilesInReverseOrder();
+
+        Map<ComponentIdentifier, List<File>> argsFilesByComponent = new LinkedHashMap<>();
+        for (ResolvedArtifactResult artifact: resolvedArtifacts.get())
+            argsFilesByComponent.computeIfAbsent(artifact.getId().getComponentIdentifier(), c -> new ArrayList<>())
+                    .add(artifact.getFile());
+
+        ComponentOrder componentOrder = componentOrderCache.isPresent()
+                ? componentOrderCache.get().getComponentOrder() : new ComponentOrder();
+        List<ComponentIdentifier> components = componentOrder.getDependenciesInOrder(rootComponent.get());
+
+        List<File> orderedArgsFiles = new ArrayList<>();
+        for (ComponentIdentifier component: components)
+            orderedArgsFiles.addAll(argsFilesByComponent.getOrDefault(component, Collections.emptyList()));
+
+        List<File> result = new ArrayList<>();
+        for (File argsFile: getArgsFilesInReverseOrder())
+            if (!orderedArgsFiles.contains(argsFile))
+                result.add(argsFile);
+        result.addAll(orderedArgsFiles);
+        return result;
     }
 
     // XXX When looping over the configuration, the args files are returned in top/down order. Direct dependencies come
     // first, followed by transitive dependencies. We need them in the other order.
-    // This is probably an implementation detail, so it's probably not so good to rely on this order.
-    private List<File> getArgsFilesInDependencyOrder() {
+    // This is probably an implementation detail, so it's only used if the dependency graph isn't known.
+    private List<File> getArgsFilesInReverseOrder() {
         List<File> result = new ArrayList<>();
         for (File argsFile: argsFiles) {
             result.add(argsFile);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2022 the original author or authors.
+ * Copyright 2022-2026 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,21 +20,13 @@ import org.gradle.api.model.ObjectFactory;
 
 import javax.inject.Inject;
 
-public abstract class GenXrunArgsFile extends AbstractGenArgsFile {
+public abstract class GenXrunArgsFile extends GenArgsFile {
 
     @Inject
     public GenXrunArgsFile(ObjectFactory objectFactory) {
         super(objectFactory);
-    }
-
-    @Override
-    protected String getLibName() {
-        return "worklib";
-    }
-
-    @Override
-    protected String getIncdirOpt(String incdirPath) {
-        return "-incdir " + incdirPath;
+        getLibraryName().convention("worklib");
+        getIncludeDirOption().convention("-incdir ");
     }
 
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2021-2025 the original author or authors.
+ * Copyright 2021-2026 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,18 +21,22 @@ import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.ConfigurablePublishArtifact;
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.component.ProjectComponentIdentifier;
 import org.gradle.api.artifacts.transform.TransformParameters;
 import org.gradle.api.artifacts.transform.TransformSpec;
 import org.gradle.api.artifacts.type.ArtifactTypeDefinition;
 import org.gradle.api.attributes.Attribute;
 import org.gradle.api.component.AdhocComponentWithVariants;
 import org.gradle.api.component.SoftwareComponentFactory;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.publish.PublishingExtension;
 import org.gradle.api.publish.maven.MavenPublication;
+import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.bundling.Zip;
 
 import javax.inject.Inject;
 import java.io.File;
+import java.util.Arrays;
 
 public class HDVLBasePlugin implements Plugin<Project> {
 
@@ -40,6 +44,7 @@ public class HDVLBasePlugin implements Plugin<Project> {
             = Attribute.of("com.verificationgentlenan.gradle.hdvl.tool", String.class);
     public static final Attribute<String> HDVL_USAGE_ATTRIBUTE
             = Attribute.of("com.verificationgentlenan.gradle.hdvl.usage", String.class);
+    public static final String COMPILED_LIBRARY_USAGE = "CompiledLibrary";
 
     private final SoftwareComponentFactory softwareComponentFactory;
 
@@ -59,32 +64,54 @@ public class HDVLBasePlugin implements Plugin<Project> {
 
         extension.getSourceSets().all(sourceSet -> configureCompileConfiguration(project, sourceSet));
 
-        String[] toolNames = {"Xrun", "Qrun"};
-        for (String toolName: toolNames) {
-            extension.getSourceSets().all(new Action<SourceSet>() {
-                @Override
-                public void execute(SourceSet sourceSet) {
-                    configureGenArgsFile(project, sourceSet, toolName);
-                    configureArgsFilesConfiguration(project, sourceSet, toolName);
-                    configureGenFullArgsFile(project, sourceSet, toolName);
-                }
-            });
+        configureGeneratedFileConventions(project, extension);
+        Provider<DirectoryContentIndex> directoryContentIndex = registerDirectoryContentIndex(project);
+        configureDirectoryContentIndex(project, directoryContentIndex);
+        configureArgsFileModelCache(project);
+        configureComponentOrderCache(project);
+        configureDependenciesAttributes(project);
 
-            configureCompileArtifact(project, mainSourceSet, toolName);
-        }
+        extension.getTools().all(new Action<Tool>() {
+            @Override
+            public void execute(Tool tool) {
+                String toolName = tool.getCapitalizedName();
+                extension.getSourceSets().all(new Action<SourceSet>() {
+                    @Override
+                    public void execute(SourceSet sourceSet) {
+                        configureGenArgsFile(project, sourceSet, tool);
+                        configureArgsFilesConfiguration(project, sourceSet, toolName);
+                        configureGenFullArgsFile(project, sourceSet, toolName);
+                    }
+                });
 
-        configureDependenciesAttributes(project);
+                configureCompileArtifact(project, mainSourceSet, toolName);
+                configureCompileLibrary(project, mainSourceSet, tool);
+                configureArgsFileTransform(project, extension, tool, directoryContentIndex);
+            }
+        });
+        addDefaultTools(project, extension);
 
         configureWriteCompileSpecFileTask(project);
         configureHdvlSourceArchiveTask(project);
         configureHdvlSourcesArchiveArtifact(project, mainSourceSet);
     }
 
-    private void configureGenArgsFile(Project project, SourceSet sourceSet, String toolName) {
+    private void addDefaultTools(Project project, HDVLPluginExtension extension) {
+        String toolNames = project.getProviders().gradleProperty("hdvl.tools").getOrElse("xrun,qrun");
+        for (String toolName: toolNames.split(",")) {
+            if (!toolName.trim().isEmpty())
+                extension.getTools().maybeCreate(toolName.trim());
+        }
+    }
+
+    private void configureGenArgsFile(Project project, SourceSet sourceSet, Tool tool) {
+        String toolName = tool.getCapitalizedName();
         String taskName = sourceSet.getGenArgsFileTaskName(toolName);
-        project.getTasks().register(taskName, getGenArgsFileClass(toolName), new Action<AbstractGenArgsFile>() {
+        project.getTasks().register(taskName, ((DefaultTool) tool).getGenArgsFileType(), new Action<GenArgsFile>() {
             @Override
-            public void execute(AbstractGenArgsFile genArgsFile) {
+            public void execute(GenArgsFile genArgsFile) {
+                genArgsFile.getLibraryName().convention(tool.getLibraryName());
+                genArgsFile.getIncludeDirOption().convention(tool.getIncludeDirOption());
                 genArgsFile.setDescription("Generates an argument file for the " + sourceSet.getName()
                         + " source code.");
                 genArgsFile.setSource(project.files().getAsFileTree());
@@ -92,29 +119,19 @@ public class HDVLBasePlugin implements Plugin<Project> {
                 genArgsFile.setExportedIncludeDirs(project.files().getAsFileTree());
                 genArgsFile.setCSource(project.files().getAsFileTree());
                 genArgsFile.getDestination().set(project.getLayout().getBuildDirectory().file(Names.of(sourceSet.getName()).getArgsFileName(toolName)));
+                genArgsFile.getSourceSetId().set(project.getProjectDir().getAbsolutePath() + ":" + sourceSet.getName());
             }
         });
     }
 
-    // TODO Handle in a generic way eventually
-    private Class<? extends AbstractGenArgsFile> getGenArgsFileClass(String toolName) {
-        switch (toolName) {
-            case "Xrun":
-                return GenXrunArgsFile.class;
-            case "Qrun":
-                return GenQrunArgsFile.class;
-        }
-        throw new IllegalArgumentException("Unexpected tool name: " + toolName);
-    }
-
     private void configureGenFullArgsFile(Project project, SourceSet sourceSet, String toolName) {
-        AbstractGenArgsFile genArgsFile = (AbstractGenArgsFile) project.getTasks()
-                .getByName(sourceSet.getGenArgsFileTaskName(toolName));
+        TaskProvider<AbstractGenArgsFile> genArgsFile = project.getTasks()
+                .named(sourceSet.getGenArgsFileTaskName(toolName), AbstractGenArgsFile.class);
         project.getTasks().register(sourceSet.getGenFullArgsFileTaskName(toolName), GenFullArgsFile.class, new Action<GenFullArgsFile>() {
             @Override
             public void execute(GenFullArgsFile genFullArgsFile) {
                 genFullArgsFile.setDescription("Generates an argument file for the " + sourceSet.getName() + " source code and its dependencies.");
-                genFullArgsFile.getSource().set(genArgsFile.getDestination());
+                genFullArgsFile.getSource().set(genArgsFile.flatMap(AbstractGenArgsFile::getDestination));
                 genFullArgsFile.getDestination().set(project.getLayout().getBuildDirectory().file(Names.of(sourceSet.getName()).getFullArgsFileName(toolName)));
                 genFullArgsFile.setArgsFiles(project.getConfigurations().getByName(sourceSet.getArgsFilesConfigurationName(toolName)));
             }
@@ -136,15 +153,112 @@ public class HDVLBasePlugin implements Plugin<Project> {
     }
 
     private void configureCompileArtifact(Project project, SourceSet mainSourceSet, String toolName) {
-        AbstractGenArgsFile genArgsFile
-                = (AbstractGenArgsFile) project.getTasks().getByName(mainSourceSet.getGenArgsFileTaskName(toolName));
+        TaskProvider<AbstractGenArgsFile> genArgsFile = project.getTasks()
+                .named(mainSourceSet.getGenArgsFileTaskName(toolName), AbstractGenArgsFile.class);
         Action<ConfigurablePublishArtifact> configureAction = new Action<ConfigurablePublishArtifact>() {
             @Override
             public void execute(ConfigurablePublishArtifact configurablePublishArtifact) {
                 configurablePublishArtifact.builtBy(genArgsFile);
             }
         };
-        project.getArtifacts().add(mainSourceSet.getArgsFilesConfigurationName(toolName), genArgsFile.getDestination(), configureAction);
+        project.getArtifacts().add(mainSourceSet.getArgsFilesConfigurationName(toolName),
+                genArgsFile.flatMap(AbstractGenArgsFile::getDestination), configureAction);
+    }
+
+    // The compiled libraries are exchanged through their own configurations, with a dedicated usage, so that they are
+    // never picked instead of the args files
+    private void configureCompileLibrary(Project project, SourceSet mainSourceSet, Tool tool) {
+        String toolName = tool.getCapitalizedName();
+        Configuration compileConfiguration
+                = project.getConfigurations().getByName(mainSourceSet.getCompileConfigurationName());
+
+        TaskProvider<AbstractGenArgsFile> genArgsFileProvider = project.getTasks()
+                .named(mainSourceSet.getGenArgsFileTaskName(toolName), AbstractGenArgsFile.class);
+        Configuration argsFiles
+                = project.getConfigurations().getByName(mainSourceSet.getArgsFilesConfigurationName(toolName));
+        TaskProvider<CompileLibrary> compileLibrary = project.getTasks().register(Names.getCompileTaskName(toolName),
+                CompileLibrary.class, task -> {
+            task.setDescription("Compiles the main source code into its own library, using " + toolName + ".");
+            task.getArgsFile().set(genArgsFileProvider.flatMap(AbstractGenArgsFile::getDestination));
+            task.getDependencyArgsFiles().from(argsFiles);
+            task.getSources().from(genArgsFileProvider.map(genArgsFile -> Arrays.asList(
+                    genArgsFile.getStableSources(), genArgsFile.getPrivateIncludeDirs(),
+                    genArgsFile.getExportedIncludeDirs(), genArgsFile.getCSource())));
+            // Only project dependencies have compiled libraries. Dependencies that are only available as source
+            // archives are left out by their component, so that actual resolution failures still fail the build.
+            task.getReferencedLibraries().from(argsFiles.getIncoming().artifactView(view -> {
+                view.withVariantReselection();
+                view.componentFilter(id -> id instanceof ProjectComponentIdentifier);
+                view.attributes(attributes -> {
+                    attributes.attribute(TOOL_ATTRIBUTE, toolName);
+                    attributes.attribute(HDVL_USAGE_ATTRIBUTE, COMPILED_LIBRARY_USAGE);
+                });
+            }).getFiles());
+            task.getExecutable().convention(tool.getExecutable());
+            task.getLibraryName().convention(project.getName().replaceAll("[^A-Za-z0-9_]", "_"));
+            task.getDestinationDir().convention(project.getLayout().getBuildDirectory()
+                    .dir("compiled_" + toolName.toLowerCase()));
+        });
+
+        Configuration compiledLibraryElements
+                = project.getConfigurations().create(Names.getCompiledLibraryElementsConfigurationName(toolName));
+        compiledLibraryElements.extendsFrom(compileConfiguration);
+        compiledLibraryElements.setCanBeConsumed(true);
+        compiledLibraryElements.setCanBeResolved(false);
+        compiledLibraryElements.getAttributes().attribute(TOOL_ATTRIBUTE, toolName);
+        compiledLibraryElements.getAttributes().attribute(HDVL_USAGE_ATTRIBUTE, COMPILED_LIBRARY_USAGE);
+        project.getArtifacts().add(compiledLibraryElements.getName(),
+                compileLibrary.flatMap(CompileLibrary::getLibraryDir), artifact -> {
+            artifact.setType(ArtifactTypeDefinition.DIRECTORY_TYPE);
+            artifact.builtBy(compileLibrary);
+        });
+    }
+
+    private void configureGeneratedFileConventions(Project project, HDVLPluginExtension extension) {
+        project.getTasks().withType(AbstractGenArgsFile.class).configureEach(task -> {
+            task.getWriteIfChanged().convention(extension.getWriteIfChanged());
+            task.getCompact().convention(extension.getCompactArgsFiles());
+        });
+        project.getTasks().withType(GenFullArgsFile.class).configureEach(task -> {
+            task.getWriteIfChanged().convention(extension.getWriteIfChanged());
+            task.getFlatten().convention(extension.getFlattenFullArgsFiles());
+        });
+        project.getTasks().withType(WriteCompileSpecFile.class).configureEach(task -> {
+            task.getWriteIfChanged().convention(extension.getWriteIfChanged());
+        });
+    }
+
+    private Provider<DirectoryContentIndex> registerDirectoryContentIndex(Project project) {
+        File snapshotFile = new File(project.getRootProject().getProjectDir(),
+                ".gradle/hdvl/directory-content-index.bin");
+        return project.getGradle().getSharedServices().registerIfAbsent("hdvlDirectoryContentIndex",
+                DirectoryContentIndex.class, spec -> spec.getParameters().getSnapshotFile().set(snapshotFile));
+    }
+
+    private void configureDirectoryContentIndex(Project project,
+            Provider<DirectoryContentIndex> directoryContentIndex) {
+        project.getTasks().withType(AbstractGenArgsFile.class).configureEach(task -> {
+            task.getDirectoryContentIndex().set(directoryContentIndex);
+            task.usesService(directoryContentIndex);
+        });
+    }
+
+    private void configureArgsFileModelCache(Project project) {
+        Provider<ArgsFileModelCache> modelCache = project.getGradle().getSharedServices()
+                .registerIfAbsent("hdvlArgsFileModelCache", ArgsFileModelCache.class, spec -> {});
+        project.getTasks().withType(AbstractGenArgsFile.class).configureEach(task -> {
+            task.getModelCache().set(modelCache);
+            task.usesService(modelCache);
+        });
+    }
+
+    private void configureComponentOrderCache(Project project) {
+        Provider<ComponentOrderCache> componentOrderCache = project.getGradle().getSharedServices()
+                .registerIfAbsent("hdvlComponentOrderCache", ComponentOrderCache.class, spec -> {});
+        project.getTasks().withType(GenFullArgsFile.class).configureEach(task -> {
+            task.getComponentOrderCache().set(componentOrderCache);
+            task.usesService(componentOrderCache);
+        });
     }
 
     private void configureDependenciesAttributes(Project project) {
@@ -162,11 +276,20 @@ public class HDVLBasePlugin implements Plugin<Project> {
                 transformSpec.getTo().attribute(TOOL_ATTRIBUTE, "None").attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, "hdvl-sources-directory");
             }
         });
-        project.getDependencies().registerTransform(WriteXrunArgsFile.class, new Action<TransformSpec<TransformParameters.None>>() {
+    }
+
+    private void configureArgsFileTransform(Project project, HDVLPluginExtension extension, Tool tool,
+            Provider<DirectoryContentIndex> directoryContentIndex) {
+        project.getDependencies().registerTransform(WriteArgsFile.class, new Action<TransformSpec<WriteArgsFile.Parameters>>() {
             @Override
-            public void execute(TransformSpec<TransformParameters.None> transformSpec) {
+            public void execute(TransformSpec<WriteArgsFile.Parameters> transformSpec) {
+                transformSpec.getParameters().getToolName().set(tool.getName());
+                transformSpec.getParameters().getLibraryName().set(tool.getLibraryName());
+                transformSpec.getParameters().getIncludeDirOption().set(tool.getIncludeDirOption());
+                transformSpec.getParameters().getDirectoryContentIndex().set(directoryContentIndex);
+                transformSpec.getParameters().getCompact().set(extension.getCompactArgsFiles());
                 transformSpec.getFrom().attribute(TOOL_ATTRIBUTE, "None").attribute(ArtifactTypeDefinition.ARTIFACT_TYPE_ATTRIBUTE, "hdvl-sources-directory");
-                transformSpec.getTo().attribute(TOOL_ATTRIBUTE, "Xrun");
+                transformSpec.getTo().attribute(TOOL_ATTRIBUTE, tool.getCapitalizedName());
             }
         });
     }
@@ -178,12 +301,13 @@ public class HDVLBasePlugin implements Plugin<Project> {
     }
 
     private void configureHdvlSourceArchiveTask(Project project) {
-        WriteCompileSpecFile writeCompileSpecFile = (WriteCompileSpecFile) project.getTasks().getByName("writeCompileSpecFile");
+        TaskProvider<WriteCompileSpecFile> writeCompileSpecFile
+                = project.getTasks().named("writeCompileSpecFile", WriteCompileSpecFile.class);
 
         project.getTasks().register("hdvlSourcesArchive", Zip.class, zip -> {
             zip.getDestinationDirectory().convention(project.getLayout().getBuildDirectory());
             zip.getArchiveFileName().convention("hdvl-sources.zip");
-            zip.from(writeCompileSpecFile.getDestination(), it -> {
+            zip.from(writeCompileSpecFile.flatMap(WriteCompileSpecFile::getDestination), it -> {
                 it.into(".gradle-hdvl");
             });
         });
@@ -196,13 +320,11 @@ public class HDVLBasePlugin implements Plugin<Project> {
         hdvlSourcesArchiveElements.setCanBeResolved(false);
         hdvlSourcesArchiveElements.getAttributes().attribute(HDVLBasePlugin.HDVL_USAGE_ATTRIBUTE, "HdvlSourcesArchive");
 
-        project.getTasks().named("hdvlSourcesArchive").configure(task -> {
-            Zip hdvlSourcesArchive = (Zip) task;
-            project.getArtifacts().add(hdvlSourcesArchiveElements.getName(), hdvlSourcesArchive.getArchiveFile(), artifact -> {
-                artifact.builtBy(hdvlSourcesArchive);
-                maybeConfigureHdvlSourcesArchiveArtifactPublishing(project, hdvlSourcesArchiveElements);
-            });
+        TaskProvider<Zip> hdvlSourcesArchive = project.getTasks().named("hdvlSourcesArchive", Zip.class);
+        project.getArtifacts().add(hdvlSourcesArchiveElements.getName(), hdvlSourcesArchive.flatMap(Zip::getArchiveFile), artifact -> {
+            artifact.builtBy(hdvlSourcesArchive);
         });
+        maybeConfigureHdvlSourcesArchiveArtifactPublishing(project, hdvlSourcesArchiveElements);
     }
 
     private void maybeConfigureHdvlSourcesArchiveArtifactPublishing(Project project, Configuration hdvlSourcesArchiveElements) {
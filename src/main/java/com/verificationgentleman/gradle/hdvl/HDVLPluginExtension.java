@@ -1,5 +1,5 @@
 /*
- * Copyright 2021 the original author or authors.
+ * Copyright 2021-2026 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 package com.verificationgentleman.gradle.hdvl;
 
 import org.gradle.api.NamedDomainObjectContainer;
+import org.gradle.api.provider.Property;
 
 public interface HDVLPluginExtension {
     /**
@@ -24,4 +25,40 @@ public interface HDVLPluginExtension {
      * @return the {@link SourceSet} container
      */
     NamedDomainObjectContainer<SourceSet> getSourceSets();
+
+    /**
+     * Returns the {@link Tool} container. Tasks and configurations are only created for the tools in this container.
+     * By default, it contains the tools listed in the 'hdvl.tools' Gradle property, separated by commas, or 'xrun'
+     * and 'qrun' if the property isn't set.
+     *
+     * @return the {@link Tool} container
+     */
+    NamedDomainObjectContainer<Tool> getTools();
+
+    /**
+     * Whether generated files (args files, compile specs) are only written when their contents change. When set,
+     * unchanged files keep their modification time, which keeps simulator incremental compilation working across
+     * builds. Defaults to {@code false}.
+     *
+     * @return the property
+     */
+    Property<Boolean> getWriteIfChanged();
+
+    /**
+     * Whether args files contain paths relative to their own location instead of absolute paths. This makes them
+     * considerably smaller for large source sets. Args files written this way are included using '-F' instead of
+     * '-f'. Defaults to {@code false}.
+     *
+     * @return the property
+     */
+    Property<Boolean> getCompactArgsFiles();
+
+    /**
+     * Whether full args files inline the args files of the source set and its dependencies, instead of including
+     * them with '-f'. Repeated include directories and identical libraries are only written once. Defaults to
+     * {@code false}.
+     *
+     * @return the property
+     */
+    Property<Boolean> getFlattenFullArgsFiles();
 }
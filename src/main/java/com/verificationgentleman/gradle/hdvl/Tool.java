@@ -0,0 +1,59 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl;
+
+import org.gradle.api.Named;
+import org.gradle.api.provider.Property;
+
+/**
+ * A simulator that args files are generated for.
+ *
+ * <p>Tasks, configurations and artifact transforms are only created for the tools in the
+ * {@link HDVLPluginExtension#getTools()} container. The tools 'xrun' and 'qrun' are known and come with the right
+ * defaults. Other tools can be added to the container, in which case their args file dialect has to be
+ * configured.</p>
+ */
+public interface Tool extends Named {
+    /**
+     * Returns the name of the tool as used in task and configuration names, e.g. 'Xrun' for the 'xrun' tool.
+     *
+     * @return the capitalized name
+     */
+    String getCapitalizedName();
+
+    /**
+     * The library that the sources of a project are compiled into, e.g. 'worklib' for xrun.
+     *
+     * @return the property
+     */
+    Property<String> getLibraryName();
+
+    /**
+     * The option written before an include directory in args files, e.g. '-incdir ' for xrun or '+incdir+' for
+     * qrun.
+     *
+     * @return the property
+     */
+    Property<String> getIncludeDirOption();
+
+    /**
+     * The executable used to compile sources with this tool. Defaults to the name of the tool.
+     *
+     * @return the property
+     */
+    Property<String> getExecutable();
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2021-2022 the original author or authors.
+ * Copyright 2021-2026 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import com.verificationgentleman.gradle.hdvl.HDVLBasePlugin;
 import com.verificationgentleman.gradle.hdvl.HDVLPluginExtension;
 import com.verificationgentleman.gradle.hdvl.SourceSet;
 import com.verificationgentleman.gradle.hdvl.c.internal.DefaultCSourceSet;
+import com.verificationgentleman.gradle.hdvl.internal.FileUtils;
 import com.verificationgentleman.gradle.hdvl.internal.WriteCompileSpecFile;
 import org.gradle.api.Action;
 import org.gradle.api.NamedDomainObjectContainer;
@@ -29,13 +30,15 @@ import org.gradle.api.Project;
 import org.gradle.api.internal.plugins.DslObject;
 import org.gradle.api.tasks.bundling.Zip;
 
+import java.io.File;
+
 public class CPlugin implements Plugin<Project> {
 
     @Override
     public void apply(Project project) {
         project.getPluginManager().apply(HDVLBasePlugin.class);
-        NamedDomainObjectContainer<SourceSet> sourceSets
-                = project.getExtensions().getByType(HDVLPluginExtension.class).getSourceSets();
+        HDVLPluginExtension extension = project.getExtensions().getByType(HDVLPluginExtension.class);
+        NamedDomainObjectContainer<SourceSet> sourceSets = extension.getSourceSets();
 	    sourceSets.all(new Action<SourceSet>() {
             @Override
             public void execute(SourceSet sourceSet) {
@@ -44,22 +47,24 @@ public class CPlugin implements Plugin<Project> {
                 // XXX WORKAROUND Not part of the public API
                 new DslObject(sourceSet).getConvention().getPlugins().put("c", cSourceSet);
 
-                String[] toolNames = {"Xrun", "Qrun"};
-                for (String toolName: toolNames) {
-                    AbstractGenArgsFile genArgsFile
-                            = (AbstractGenArgsFile) project.getTasks().getByName(sourceSet.getGenArgsFileTaskName(toolName));
-                    genArgsFile.setCSource(cSourceSet.getC());
-                }
+                extension.getTools().all(tool -> {
+                    project.getTasks().named(sourceSet.getGenArgsFileTaskName(tool.getCapitalizedName()),
+                            AbstractGenArgsFile.class, genArgsFile -> {
+                        genArgsFile.setCSource(cSourceSet.getC());
+                        genArgsFile.getSourceRoots().from(cSourceSet.getC().getSourceDirectories());
+                    });
+                });
 
                 if (sourceSet.getName() == "main") {
-                    project.getTasks().withType(WriteCompileSpecFile.class, task -> {
+                    project.getTasks().withType(WriteCompileSpecFile.class).configureEach(task -> {
                         task.getCSource().from(cSourceSet.getC());
+                        task.getSourceRoots().from(cSourceSet.getC().getSourceDirectories());
                     });
-                    project.getTasks().getByName("hdvlSourcesArchive", task -> {
-                        Zip hdvlSourcesArchive = (Zip) task;
+                    project.getTasks().named("hdvlSourcesArchive", Zip.class, hdvlSourcesArchive -> {
+                        File projectDir = project.getProjectDir();
                         hdvlSourcesArchive.from(cSourceSet.getC(), it -> {
                             it.eachFile(file -> {
-                                file.setPath(project.relativePath(file.getFile()));
+                                file.setPath(FileUtils.relativePath(projectDir, file.getFile()));
                             });
                         });
                     });
@@ -1,5 +1,5 @@
 /*
- * Copyright 2021-2025 the original author or authors.
+ * Copyright 2021-2026 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,12 +17,16 @@
 package com.verificationgentleman.gradle.hdvl.dvt;
 
 import com.verificationgentleman.gradle.hdvl.GenFullArgsFile;
+import com.verificationgentleman.gradle.hdvl.HDVLPluginExtension;
 import com.verificationgentleman.gradle.hdvl.SourceSet;
 import com.verificationgentleman.gradle.hdvl.dvt.internal.SVUnitSetup;
+import com.verificationgentleman.gradle.hdvl.svunit.internal.SVUnitEnvironment;
 import com.verificationgentleman.gradle.hdvl.systemverilog.SystemVerilogSourceSet;
 import org.gradle.api.*;
 import org.gradle.api.internal.HasConvention;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.reflect.TypeOf;
+import org.gradle.api.tasks.TaskProvider;
 
 import java.io.File;
 
@@ -33,14 +37,27 @@ public class DVTPlugin implements Plugin<Project> {
             throw new InvalidUserDataException("Can only be applied to the root project. Tried to apply to " + project);
         }
 
+        Provider<SVUnitEnvironment> svunitEnvironment = project.getGradle().getSharedServices()
+                .registerIfAbsent("hdvlSVUnitEnvironment", SVUnitEnvironment.class, spec -> {});
+
         project.getTasks().register("dvt", DVTTask.class, new Action<DVTTask>() {
             @Override
             public void execute(DVTTask dvt) {
                 dvt.setDescription("Generates a DVT project.");
+                dvt.getSvunitEnvironment().set(svunitEnvironment);
+                dvt.usesService(svunitEnvironment);
+
+                project.getPluginManager().withPlugin("com.verificationgentleman.gradle.hdvl.base", appliedPlugin -> {
+                    HDVLPluginExtension extension = project.getExtensions().getByType(HDVLPluginExtension.class);
+                    dvt.getWriteIfChanged().convention(extension.getWriteIfChanged());
+                });
 
                 project.allprojects(project -> {
                     project.getPluginManager().withPlugin("com.verificationgentleman.gradle.hdvl.base", appliedPlugin -> {
-                        addArgsFile(dvt, project);
+                        // DVT projects are set up for Xcelium
+                        project.getExtensions().getByType(HDVLPluginExtension.class).getTools()
+                                .matching(tool -> tool.getName().equals("xrun"))
+                                .all(tool -> addArgsFile(dvt, project));
                     });
                     project.getPluginManager().withPlugin("com.verificationgentleman.gradle.hdvl.svunit", appliedPlugin -> {
                         maybeConfigureTests(dvt, project);
@@ -49,9 +66,9 @@ public class DVTPlugin implements Plugin<Project> {
             }
 
             private void addArgsFile(DVTTask dvt, Project sourceProject) {
-                GenFullArgsFile genFullArgsFile
-                        = sourceProject.getTasks().withType(GenFullArgsFile.class).getByName("genFullXrunArgsFile");
-                dvt.getArgsFiles().from(genFullArgsFile.getDestination());
+                TaskProvider<GenFullArgsFile> genFullArgsFile
+                        = sourceProject.getTasks().named("genFullXrunArgsFile", GenFullArgsFile.class);
+                dvt.getArgsFiles().from(genFullArgsFile.flatMap(GenFullArgsFile::getDestination));
             }
 
             private void maybeConfigureTests(DVTTask dvt, Project sourceProject) {
@@ -62,6 +79,8 @@ public class DVTPlugin implements Plugin<Project> {
                                 sourceProject.provider(() -> testSvSourceSet.getSv().getSourceDirectories().getSingleFile())
                         )
                 );
+                svUnitSetup.getTestFiles().from(svUnitSetup.getTestsRoot().map(testsRoot ->
+                        testsRoot.getAsFileTree().matching(files -> files.include("**/*_unit_test.sv", "**/svunit.f"))));
                 svUnitSetup.getSvunitRoot().setFrom(sourceProject.getConfigurations().getByName("svUnitRoot"));
                 svUnitSetup.getWorkingDir().set(sourceProject.getLayout().getBuildDirectory().dir("dvt/svunit"));
                 dvt.getSvUnitSetups().add(svUnitSetup);
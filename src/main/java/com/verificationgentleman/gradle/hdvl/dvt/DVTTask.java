@@ -1,5 +1,5 @@
 /*
- * Copyright 2021-2024 the original author or authors.
+ * Copyright 2021-2026 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,36 +15,45 @@
  */
 package com.verificationgentleman.gradle.hdvl.dvt;
 
+import com.verificationgentleman.gradle.hdvl.dvt.internal.BuildTestInfrastructureAction;
 import com.verificationgentleman.gradle.hdvl.dvt.internal.SVUnitSetup;
-import org.gradle.api.Action;
+import com.verificationgentleman.gradle.hdvl.internal.OutputFiles;
+import com.verificationgentleman.gradle.hdvl.svunit.internal.SVUnitEnvironment;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.ProjectLayout;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Nested;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
-import org.gradle.process.ExecSpec;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 
 import javax.inject.Inject;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
 
 public abstract class DVTTask extends DefaultTask {
     // TODO Fix duplication with SVUnit plugin w.r.t. executing SVUnit scripts
 
     private ConfigurableFileCollection argsFiles;
     private RegularFileProperty defaultBuild;
+    private Property<Boolean> writeIfChanged;
+    private Property<Boolean> nativeTestInfrastructure;
 
     @Inject
-    public DVTTask(ObjectFactory objectFactory) {
-        argsFiles = getProject().getObjects().fileCollection();
-        defaultBuild = getProject().getObjects().fileProperty().convention(
-                getProject().getLayout().getProjectDirectory().dir(".dvt").file("default.build"));
+    public DVTTask(ObjectFactory objectFactory, ProjectLayout projectLayout) {
+        argsFiles = objectFactory.fileCollection();
+        defaultBuild = objectFactory.fileProperty().convention(
+                projectLayout.getProjectDirectory().dir(".dvt").file("default.build"));
+        writeIfChanged = objectFactory.property(Boolean.class).convention(false);
+        nativeTestInfrastructure = objectFactory.property(Boolean.class).convention(false);
     }
 
     @InputFiles
@@ -60,47 +69,52 @@ public abstract class DVTTask extends DefaultTask {
     @Nested
     public abstract SetProperty<SVUnitSetup> getSvUnitSetups();
 
-    @TaskAction
-    public void generate() throws IOException {
-        FileWriter fw = new FileWriter(defaultBuild.get().getAsFile());
-        fw.write("+dvt_init+xcelium.xrun\n");
-        for (File argsFile : argsFiles.getFiles())
-            fw.write("-f " + argsFile.getAbsolutePath() + "\n");
-
-        for (SVUnitSetup svUnitSetup : getSvUnitSetups().get()) {
-            createLinkToTests(svUnitSetup);
-            buildTestInfrastructure(svUnitSetup);
-            fw.write("-F " + svUnitSetup.getWorkingDir().file(".svunit.f\n").get().getAsFile().getAbsolutePath());
-        }
+    /**
+     * Whether to leave 'default.build' untouched if its contents didn't change.
+     */
+    @Internal
+    public Property<Boolean> getWriteIfChanged() {
+        return writeIfChanged;
+    }
 
-        fw.close();
+    /**
+     * Whether to generate the SVUnit test infrastructure in-process instead of running 'buildSVUnit'.
+     */
+    @Input
+    public Property<Boolean> getNativeTestInfrastructure() {
+        return nativeTestInfrastructure;
     }
 
-    private void createLinkToTests(SVUnitSetup svUnitSetup) {
-        try {
-            File testsLink = new File(svUnitSetup.getWorkingDir().get().getAsFile(), "tests");
-            Files.deleteIfExists(testsLink.toPath());
-            Files.createSymbolicLink(testsLink.toPath(), svUnitSetup.getTestsRoot().get().getAsFile().toPath());
-        } catch (IOException e) {
-            throw new RuntimeException("Could not create 'tests' link.\n\n" + e.toString());
+    /**
+     * Provides the environment set up by the SVUnit installations' 'Setup.bsh'.
+     */
+    @Internal
+    public abstract Property<SVUnitEnvironment> getSvunitEnvironment();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    @TaskAction
+    public void generate() throws IOException {
+        // The test infrastructure of each test source set is built in parallel, by at most as many workers as
+        // configured for the build
+        WorkQueue workQueue = getWorkerExecutor().noIsolation();
+        for (SVUnitSetup svUnitSetup : getSvUnitSetups().get()) {
+            workQueue.submit(BuildTestInfrastructureAction.class, parameters -> {
+                parameters.getTestsRoot().set(svUnitSetup.getTestsRoot());
+                parameters.getSvunitRoot().from(svUnitSetup.getSvunitRoot());
+                parameters.getWorkingDir().set(svUnitSetup.getWorkingDir());
+                parameters.getSvunitEnvironment().set(getSvunitEnvironment());
+                parameters.getNativeTestInfrastructure().set(nativeTestInfrastructure);
+            });
         }
-    }
 
-    private void buildTestInfrastructure(SVUnitSetup svUnitSetup) {
-        getProject().exec(new Action<ExecSpec>() {
-            @Override
-            public void execute(ExecSpec execSpec) {
-                execSpec.executable("bash");
-                String sourceCommands = String.join("; ",
-                    "cd " + svUnitSetup.getSvunitRoot().getSingleFile(),
-                    "source Setup.bsh",
-                    "cd -");
-                String buildSVUnitCommand = String.join(" ",
-                    "buildSVUnit");
-                String cArg = String.join("; ", sourceCommands, buildSVUnitCommand);
-                execSpec.args("-c", cArg);
-                execSpec.workingDir(svUnitSetup.getWorkingDir().get().getAsFile());
-            }
+        OutputFiles.write(defaultBuild.get().getAsFile(), writeIfChanged.get(), writer -> {
+            writer.write("+dvt_init+xcelium.xrun\n");
+            for (File argsFile : argsFiles.getFiles())
+                writer.write("-f " + argsFile.getAbsolutePath() + "\n");
+            for (SVUnitSetup svUnitSetup : getSvUnitSetups().get())
+                writer.write("-F " + svUnitSetup.getWorkingDir().file(".svunit.f").get().getAsFile().getAbsolutePath() + "\n");
         });
     }
 }
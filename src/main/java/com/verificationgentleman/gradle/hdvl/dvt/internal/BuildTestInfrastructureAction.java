@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.dvt.internal;
+
+import com.verificationgentleman.gradle.hdvl.svunit.internal.SVUnitEnvironment;
+import com.verificationgentleman.gradle.hdvl.svunit.internal.SnapshotKey;
+import com.verificationgentleman.gradle.hdvl.svunit.internal.TestInfrastructure;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.process.ExecOperations;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Builds the SVUnit test infrastructure of one test source set, so that DVT can find it.
+ *
+ * <p>The infrastructure only depends on which unit tests there are, not on their contents. A stamp of the unit tests,
+ * the 'svunit.f' files next to them and the way the infrastructure is built is stored in the working directory, and
+ * nothing is done if it didn't change since the previous run.</p>
+ */
+public abstract class BuildTestInfrastructureAction implements WorkAction<BuildTestInfrastructureAction.Parameters> {
+    private static final String STAMP_FILE = ".hdvl-dvt-stamp";
+
+    public interface Parameters extends WorkParameters {
+        DirectoryProperty getTestsRoot();
+
+        ConfigurableFileCollection getSvunitRoot();
+
+        DirectoryProperty getWorkingDir();
+
+        Property<SVUnitEnvironment> getSvunitEnvironment();
+
+        Property<Boolean> getNativeTestInfrastructure();
+    }
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @Override
+    public void execute() {
+        File workingDir = getParameters().getWorkingDir().get().getAsFile();
+        File stampFile = new File(workingDir, STAMP_FILE);
+        String stamp;
+        try {
+            stamp = getStamp();
+            if (isUpToDate(stampFile, stamp))
+                return;
+            Files.deleteIfExists(stampFile.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        createLinkToTests();
+        if (getParameters().getNativeTestInfrastructure().get())
+            generateTestInfrastructure();
+        else
+            buildTestInfrastructure();
+
+        try {
+            Files.write(stampFile.toPath(), stamp.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String getStamp() throws IOException {
+        File testsRoot = getParameters().getTestsRoot().get().getAsFile();
+        List<String> unitTests = TestInfrastructure.findUnitTests(testsRoot);
+        SnapshotKey stamp = new SnapshotKey()
+                .add(getParameters().getNativeTestInfrastructure().get() ? "native" : "buildSVUnit")
+                .add(getParameters().getSvunitRoot().getSingleFile().getAbsolutePath())
+                .add(testsRoot.getAbsolutePath())
+                .add(unitTests);
+        Set<File> testDirs = new TreeSet<>();
+        for (String unitTest : unitTests)
+            testDirs.add(new File(testsRoot, unitTest).getParentFile());
+        for (File testDir : testDirs)
+            stamp.addFile(new File(testDir, "svunit.f"));
+        return stamp.get();
+    }
+
+    private boolean isUpToDate(File stampFile, String stamp) throws IOException {
+        File workingDir = getParameters().getWorkingDir().get().getAsFile();
+        Path testsLink = new File(workingDir, "tests").toPath();
+        return stampFile.isFile()
+                && stamp.equals(new String(Files.readAllBytes(stampFile.toPath()), StandardCharsets.UTF_8))
+                && new File(workingDir, ".svunit.f").isFile()
+                && Files.isSymbolicLink(testsLink)
+                && Files.readSymbolicLink(testsLink).equals(getParameters().getTestsRoot().get().getAsFile().toPath());
+    }
+
+    private void createLinkToTests() {
+        try {
+            File testsLink = new File(getParameters().getWorkingDir().get().getAsFile(), "tests");
+            Files.deleteIfExists(testsLink.toPath());
+            Files.createSymbolicLink(testsLink.toPath(), getParameters().getTestsRoot().get().getAsFile().toPath());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create 'tests' link.\n\n" + e.toString());
+        }
+    }
+
+    private void generateTestInfrastructure() {
+        try {
+            TestInfrastructure.generate(getParameters().getTestsRoot().get().getAsFile(),
+                    getParameters().getWorkingDir().get().getAsFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void buildTestInfrastructure() {
+        Map<String, String> environment = getParameters().getSvunitEnvironment().get()
+                .getEnvironment(getParameters().getSvunitRoot().getSingleFile());
+        getExecOperations().exec(execSpec -> {
+            execSpec.setEnvironment(environment);
+            execSpec.executable(SVUnitEnvironment.findExecutable("buildSVUnit", environment));
+            execSpec.workingDir(getParameters().getWorkingDir().get().getAsFile());
+        });
+    }
+}
@@ -2,16 +2,25 @@ package com.verificationgentleman.gradle.hdvl.dvt.internal;
 
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
-import org.gradle.api.tasks.InputDirectory;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
 
 public interface SVUnitSetup {
-    @InputDirectory
-    @Optional
+    @Internal
     public DirectoryProperty getTestsRoot();
 
+    /**
+     * Returns the files below the tests root that the test infrastructure depends on: the unit tests and the
+     * 'svunit.f' files next to them.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public ConfigurableFileCollection getTestFiles();
+
     @InputFiles
     @Optional
     public ConfigurableFileCollection getSvunitRoot();
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * An Ant-style include pattern (e.g. {@code **}{@code /pkg_*.sv}), matched against '/' separated relative paths.
+ * Follows the same rules as Gradle's pattern filters: a trailing '/' is short for '/**', '**' matches any number of
+ * path segments, '*' and '?' match within a single segment.
+ */
+public final class AntPathPattern implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final String ANY_SEGMENTS = "**";
+
+    private final String pattern;
+    private final Pattern[] segments;
+
+    private AntPathPattern(String pattern, Pattern[] segments) {
+        this.pattern = pattern;
+        this.segments = segments;
+    }
+
+    public static AntPathPattern compile(String pattern) {
+        String normalized = pattern.replace('\\', '/');
+        if (normalized.endsWith("/"))
+            normalized = normalized + ANY_SEGMENTS;
+
+        List<Pattern> segments = new ArrayList<>();
+        for (String segment : normalized.split("/")) {
+            if (segment.isEmpty())
+                continue;
+            segments.add(segment.equals(ANY_SEGMENTS) ? null : Pattern.compile(toRegex(segment)));
+        }
+        return new AntPathPattern(pattern, segments.toArray(new Pattern[0]));
+    }
+
+    public boolean matches(String relativePath) {
+        return matches(relativePath.split("/"), 0, 0);
+    }
+
+    private boolean matches(String[] path, int pathIdx, int patternIdx) {
+        while (patternIdx < segments.length) {
+            Pattern segment = segments[patternIdx];
+            if (segment == null) {
+                for (int i = pathIdx; i <= path.length; i++)
+                    if (matches(path, i, patternIdx + 1))
+                        return true;
+                return false;
+            }
+            if (pathIdx >= path.length || !segment.matcher(path[pathIdx]).matches())
+                return false;
+            pathIdx++;
+            patternIdx++;
+        }
+        return pathIdx == path.length;
+    }
+
+    private static String toRegex(String segment) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : segment.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? "[^/]*" : "[^/]");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0)
+            regex.append(Pattern.quote(literal.toString()));
+        return regex.toString();
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
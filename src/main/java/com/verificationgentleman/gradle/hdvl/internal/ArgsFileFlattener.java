@@ -0,0 +1,119 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Merges args files into a single one.
+ *
+ * <p>Included args files ('-f' and '-F') are inlined. Paths in args files with relative paths are made absolute. Include
+ * directories outside of libraries that were already added are skipped, as are library blocks ('-makelib' ...
+ * '-endlib') identical to one that was already added, and repeated include directories within a library. Everything
+ * else is kept in the order in which it was first added.</p>
+ */
+public class ArgsFileFlattener {
+    private final List<String> lines = new ArrayList<>();
+    private final Set<String> includeDirs = new HashSet<>();
+    private final Set<String> libraries = new HashSet<>();
+    private final Set<File> visiting = new HashSet<>();
+
+    private List<String> library;
+    private Set<String> libraryIncludeDirs;
+
+    /**
+     * @param relativePaths whether relative paths in the file are relative to the file itself, as for '-F'
+     */
+    public void add(File argsFile, boolean relativePaths) throws IOException {
+        File key = argsFile.getAbsoluteFile();
+        if (!visiting.add(key))
+            throw new IOException("Args file includes itself: " + argsFile);
+
+        try (BufferedReader reader = Files.newBufferedReader(key.toPath(), StandardCharsets.UTF_8)) {
+            File baseDir = relativePaths ? key.getParentFile() : null;
+            String line;
+            while ((line = reader.readLine()) != null)
+                addLine(line.trim(), baseDir);
+        } finally {
+            visiting.remove(key);
+        }
+    }
+
+    private void addLine(String line, File baseDir) throws IOException {
+        if (line.isEmpty() || line.startsWith("//") || line.startsWith("#"))
+            return;
+
+        if (line.startsWith("-f ") || line.startsWith("-F ")) {
+            add(new File(resolve(line.substring(3).trim(), baseDir)), line.startsWith("-F "));
+        } else if (line.startsWith("-makelib ")) {
+            library = new ArrayList<>();
+            libraryIncludeDirs = new HashSet<>();
+            library.add(line);
+        } else if (line.equals("-endlib") && library != null) {
+            library.add(line);
+            if (libraries.add(String.join("\n", library)))
+                lines.addAll(library);
+            library = null;
+            libraryIncludeDirs = null;
+        } else if (isIncludeDir(line)) {
+            String includeDir = resolveIncludeDir(line, baseDir);
+            if (library != null) {
+                if (libraryIncludeDirs.add(includeDir))
+                    library.add("  " + includeDir);
+            } else if (includeDirs.add(includeDir)) {
+                lines.add(includeDir);
+            }
+        } else {
+            String resolved = line.startsWith("-") || line.startsWith("+") ? line : resolve(line, baseDir);
+            if (library != null)
+                library.add("  " + resolved);
+            else
+                lines.add(resolved);
+        }
+    }
+
+    private static boolean isIncludeDir(String line) {
+        return line.startsWith("-incdir ") || line.startsWith("+incdir+");
+    }
+
+    private static String resolveIncludeDir(String line, File baseDir) {
+        if (line.startsWith("-incdir "))
+            return "-incdir " + resolve(line.substring("-incdir ".length()).trim(), baseDir);
+        return "+incdir+" + resolve(line.substring("+incdir+".length()), baseDir);
+    }
+
+    private static String resolve(String path, File baseDir) {
+        if (baseDir == null || new File(path).isAbsolute())
+            return path;
+        return new File(baseDir, path).toPath().normalize().toString();
+    }
+
+    public List<String> getLines() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    public void writeTo(Writer writer) throws IOException {
+        for (String line : lines)
+            writer.write(line + "\n");
+    }
+}
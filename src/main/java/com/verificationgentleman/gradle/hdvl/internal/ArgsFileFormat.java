@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * How paths are written to args files.
+ *
+ * <p>Compact args files contain paths relative to the directory of the args file instead of absolute paths. They
+ * start with {@link #RELATIVE_PATHS_HEADER} and have to be passed to the simulator with '-F' instead of '-f', which
+ * makes it resolve relative paths against the location of the args file.</p>
+ */
+public class ArgsFileFormat {
+    public static final String RELATIVE_PATHS_HEADER = "// hdvl:relative-paths";
+
+    private ArgsFileFormat() {}
+
+    /**
+     * Returns the path to write for a file, either absolute or relative to the given args file.
+     */
+    public static String path(File file, File argsFile, boolean relative) {
+        if (!relative)
+            return file.getAbsolutePath();
+        Path argsFileDir = argsFile.getAbsoluteFile().toPath().getParent();
+        Path path = file.getAbsoluteFile().toPath();
+        if (!path.getRoot().equals(argsFileDir.getRoot()))
+            return file.getAbsolutePath();
+        String result = argsFileDir.relativize(path).toString();
+        return result.isEmpty() ? "." : result;
+    }
+
+    /**
+     * Returns the option used to include an args file from another args file.
+     */
+    public static String includeOpt(File argsFile) throws IOException {
+        return (hasRelativePaths(argsFile) ? "-F " : "-f ") + argsFile.getAbsolutePath();
+    }
+
+    public static boolean hasRelativePaths(File argsFile) throws IOException {
+        if (!argsFile.isFile())
+            return false;
+        try (BufferedReader reader = Files.newBufferedReader(argsFile.toPath(), StandardCharsets.UTF_8)) {
+            return RELATIVE_PATHS_HEADER.equals(reader.readLine());
+        }
+    }
+}
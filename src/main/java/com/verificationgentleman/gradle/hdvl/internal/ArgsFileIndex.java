@@ -0,0 +1,160 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * The ordered entries of an args file, as written by the previous execution of a gen args file task.
+ *
+ * <p>Include directories are stored together with whether they contained any files, so that only the directories
+ * affected by a change need to be checked again. SystemVerilog source files are grouped by their compile order rank;
+ * files within a rank, like the C source files, are sorted by path. This way, a file added to the index ends up in the
+ * same place as when scanning all sources, regardless of the order in which they were found.</p>
+ */
+public class ArgsFileIndex {
+    private static final String VERSION = "hdvl-args-file-index 1";
+
+    private final String key;
+    private final Map<File, Boolean> exportedIncludeDirs = new LinkedHashMap<>();
+    private final Map<File, Boolean> privateIncludeDirs = new LinkedHashMap<>();
+    private final SortedMap<Integer, Set<File>> svSourceFiles = new TreeMap<>();
+    private final Map<File, Integer> svSourceFileRanks = new HashMap<>();
+    private final Set<File> cSourceFiles = new TreeSet<>();
+
+    /**
+     * @param key Identifies the settings the index was computed for. An index is only reusable for the same key.
+     */
+    public ArgsFileIndex(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Creates a copy of another index, for a different key.
+     */
+    public ArgsFileIndex(String key, ArgsFileIndex other) {
+        this(key);
+        exportedIncludeDirs.putAll(other.exportedIncludeDirs);
+        privateIncludeDirs.putAll(other.privateIncludeDirs);
+        for (Map.Entry<Integer, Set<File>> entry : other.svSourceFiles.entrySet())
+            for (File svSourceFile : entry.getValue())
+                addSvSourceFile(svSourceFile, entry.getKey());
+        cSourceFiles.addAll(other.cSourceFiles);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Map<File, Boolean> getExportedIncludeDirs() {
+        return exportedIncludeDirs;
+    }
+
+    public Map<File, Boolean> getPrivateIncludeDirs() {
+        return privateIncludeDirs;
+    }
+
+    public List<File> getSvSourceFiles() {
+        List<File> result = new ArrayList<>(svSourceFileRanks.size());
+        for (Set<File> filesWithRank : svSourceFiles.values())
+            result.addAll(filesWithRank);
+        return result;
+    }
+
+    public void addSvSourceFile(File file, int rank) {
+        if (svSourceFileRanks.containsKey(file))
+            return;
+        svSourceFiles.computeIfAbsent(rank, r -> new TreeSet<>()).add(file);
+        svSourceFileRanks.put(file, rank);
+    }
+
+    public void removeSvSourceFile(File file) {
+        Integer rank = svSourceFileRanks.remove(file);
+        if (rank != null)
+            svSourceFiles.get(rank).remove(file);
+    }
+
+    public Set<File> getCSourceFiles() {
+        return cSourceFiles;
+    }
+
+    /**
+     * Loads an index previously written with {@link #save(File)}.
+     *
+     * @return the index, or {@code null} if the file doesn't exist or wasn't written by this version of the plugin
+     */
+    public static ArgsFileIndex load(File file) throws IOException {
+        if (!file.isFile())
+            return null;
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            if (!VERSION.equals(reader.readLine()))
+                return null;
+            String key = reader.readLine();
+            if (key == null)
+                return null;
+
+            ArgsFileIndex result = new ArgsFileIndex(key);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(" ", 3);
+                if (fields.length != 3)
+                    return null;
+                File entry = new File(fields[2]);
+                switch (fields[0]) {
+                    case "exported":
+                        result.exportedIncludeDirs.put(entry, Boolean.parseBoolean(fields[1]));
+                        break;
+                    case "private":
+                        result.privateIncludeDirs.put(entry, Boolean.parseBoolean(fields[1]));
+                        break;
+                    case "sv":
+                        result.addSvSourceFile(entry, Integer.parseInt(fields[1]));
+                        break;
+                    case "c":
+                        result.cSourceFiles.add(entry);
+                        break;
+                    default:
+                        return null;
+                }
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public void save(File file) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(VERSION + "\n");
+            writer.write(key.replace('\n', ' ') + "\n");
+            for (Map.Entry<File, Boolean> entry : exportedIncludeDirs.entrySet())
+                writer.write("exported " + entry.getValue() + " " + entry.getKey().getAbsolutePath() + "\n");
+            for (Map.Entry<File, Boolean> entry : privateIncludeDirs.entrySet())
+                writer.write("private " + entry.getValue() + " " + entry.getKey().getAbsolutePath() + "\n");
+            for (Map.Entry<Integer, Set<File>> entry : svSourceFiles.entrySet())
+                for (File svSourceFile : entry.getValue())
+                    writer.write("sv " + entry.getKey() + " " + svSourceFile.getAbsolutePath() + "\n");
+            for (File cSourceFile : cSourceFiles)
+                writer.write("c - " + cSourceFile.getAbsolutePath() + "\n");
+        }
+    }
+}
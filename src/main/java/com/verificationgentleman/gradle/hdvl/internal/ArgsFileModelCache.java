@@ -0,0 +1,74 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Holds the scanned and ordered sources of each source set for the duration of a build.
+ *
+ * <p>The args files of all tools are generated from the same include directories and source files; only the way they
+ * are written differs. The first gen args file task of a source set to run scans its sources, the others reuse the
+ * result.</p>
+ */
+public abstract class ArgsFileModelCache implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+    private static final Logger LOGGER = Logging.getLogger(ArgsFileModelCache.class);
+
+    private final Map<String, ArgsFileIndex> models = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Returns the model stored for the given key, computing it if this is the first request for it. The returned
+     * model is shared and must not be modified.
+     *
+     * @param key Identifies the source set and all settings that affect which files the model contains and in which
+     *            order.
+     */
+    public ArgsFileIndex getModel(String key, Supplier<ArgsFileIndex> computeModel) {
+        ArgsFileIndex model = models.get(key);
+        if (model != null) {
+            hits.incrementAndGet();
+            return model;
+        }
+        return models.computeIfAbsent(key, k -> {
+            misses.incrementAndGet();
+            return computeModel.get();
+        });
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public void close() {
+        LOGGER.info("HDVL args file model cache: {} hits, {} misses", hits.get(), misses.get());
+    }
+}
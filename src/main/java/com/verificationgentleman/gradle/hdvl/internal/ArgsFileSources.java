@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lists the files and include directories reachable from an args file, including those of the args files it includes,
+ * so that tasks consuming args files can track what the simulator will read.
+ */
+public class ArgsFileSources {
+    private ArgsFileSources() {}
+
+    public static List<File> of(File argsFile) {
+        try {
+            ArgsFileFlattener flattener = new ArgsFileFlattener();
+            flattener.add(argsFile, ArgsFileFormat.hasRelativePaths(argsFile));
+            List<File> result = new ArrayList<>();
+            for (String line : flattener.getLines()) {
+                line = line.trim();
+                if (line.startsWith("-incdir "))
+                    result.add(new File(line.substring("-incdir ".length()).trim()));
+                else if (line.startsWith("+incdir+"))
+                    result.add(new File(line.substring("+incdir+".length())));
+                else if (!line.startsWith("-") && !line.startsWith("+"))
+                    result.add(new File(line));
+            }
+            return result;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read args file " + argsFile, e);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import com.verificationgentleman.gradle.hdvl.systemverilog.FileOrder;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * A {@link FileOrder} compiled to a matcher, used to sort source files into groups with a single traversal.
+ *
+ * <p>Each group gets a rank, with files not matching any pattern having rank 0. Groups to compile first get the
+ * lowest ranks and groups to compile last get the highest, so that sorting by rank yields the compile order.</p>
+ */
+public final class CompiledFileOrder {
+    private static final CompiledFileOrder UNORDERED = new CompiledFileOrder(new AntPathPattern[0], new int[0], false,
+            "");
+
+    private final AntPathPattern[] patterns;
+    private final int[] ranks;
+    private final boolean byDependencies;
+    private final String description;
+
+    private CompiledFileOrder(AntPathPattern[] patterns, int[] ranks, boolean byDependencies, String description) {
+        this.patterns = patterns;
+        this.ranks = ranks;
+        this.byDependencies = byDependencies;
+        this.description = description;
+    }
+
+    /**
+     * @param order the order to compile, or {@code null} to keep files in file system order
+     */
+    public static CompiledFileOrder compile(FileOrder order) {
+        if (order == null || (order.getRules().isEmpty() && !order.isByDependencies()))
+            return UNORDERED;
+
+        List<FileOrder.Rule> rules = order.getRules();
+        int numFirst = 0;
+        for (FileOrder.Rule rule : rules)
+            if (rule.getPlacement() == FileOrder.Rule.Placement.FIRST)
+                numFirst++;
+
+        // Explicit ranks are spread out to leave room for the 'first' and 'last' groups around them
+        List<AntPathPattern> patterns = new ArrayList<>();
+        List<Integer> ranks = new ArrayList<>();
+        StringBuilder description = new StringBuilder();
+        int firstIdx = 0;
+        int lastIdx = 0;
+        for (FileOrder.Rule rule : rules) {
+            int rank;
+            switch (rule.getPlacement()) {
+                case FIRST:
+                    rank = Integer.MIN_VALUE + firstIdx++;
+                    break;
+                case LAST:
+                    rank = Integer.MAX_VALUE - rules.size() + numFirst + lastIdx++;
+                    break;
+                default:
+                    rank = rule.getRank();
+                    if (rank <= Integer.MIN_VALUE + rules.size() || rank >= Integer.MAX_VALUE - rules.size())
+                        throw new IllegalArgumentException("Rank out of range: " + rank);
+            }
+            for (String pattern : rule.getPatterns()) {
+                patterns.add(AntPathPattern.compile(pattern));
+                ranks.add(rank);
+            }
+            description.append(rule.getPlacement().name().toLowerCase(Locale.ROOT));
+            if (rule.getPlacement() == FileOrder.Rule.Placement.RANKED)
+                description.append('(').append(rule.getRank()).append(')');
+            description.append(rule.getPatterns()).append(' ');
+        }
+
+        if (order.isByDependencies())
+            description.append("by-dependencies");
+
+        int[] ranksArray = new int[ranks.size()];
+        for (int i = 0; i < ranksArray.length; i++)
+            ranksArray[i] = ranks.get(i);
+        return new CompiledFileOrder(patterns.toArray(new AntPathPattern[0]), ranksArray, order.isByDependencies(),
+                description.toString().trim());
+    }
+
+    public boolean isOrdered() {
+        return patterns.length > 0 || byDependencies;
+    }
+
+    /**
+     * Whether files have to be reordered by their dependencies, using {@link SvDependencyOrder}, after being sorted
+     * by rank.
+     */
+    public boolean isByDependencies() {
+        return byDependencies;
+    }
+
+    /**
+     * Returns the rank of a file, given its '/' separated path relative to its source directory. The first matching
+     * pattern decides.
+     */
+    public int getRank(String relativePath) {
+        for (int i = 0; i < patterns.length; i++)
+            if (patterns[i].matches(relativePath))
+                return ranks[i];
+        return 0;
+    }
+
+    /**
+     * Returns the rank of a file, based on its path relative to the source directory containing it.
+     *
+     * @return the rank, or {@code null} if the file isn't in any of the source directories
+     */
+    public Integer getRank(File file, Iterable<File> sourceDirs) {
+        if (!isOrdered())
+            return 0;
+        File sourceDir = FileUtils.getContainingDir(file, sourceDirs);
+        if (sourceDir == null)
+            return null;
+        return getRank(sourceDir.toPath().relativize(file.toPath()).toString().replace(File.separatorChar, '/'));
+    }
+
+    /**
+     * Returns the files in compile order. Files with the same rank keep their order. Files outside of the source
+     * directories are ranked like files not matching any pattern.
+     */
+    public List<File> sort(Iterable<File> files, Iterable<File> sourceDirs) {
+        SortedMap<Integer, List<File>> filesByRank = new TreeMap<>();
+        for (File file: files) {
+            Integer rank = getRank(file, sourceDirs);
+            filesByRank.computeIfAbsent(rank != null ? rank : 0, r -> new ArrayList<>()).add(file);
+        }
+
+        List<File> result = new ArrayList<>();
+        for (List<File> filesWithRank : filesByRank.values())
+            result.addAll(filesWithRank);
+        return result;
+    }
+
+    /**
+     * Describes the compiled rules, for detecting when the order changed.
+     */
+    @Override
+    public String toString() {
+        return description;
+    }
+}
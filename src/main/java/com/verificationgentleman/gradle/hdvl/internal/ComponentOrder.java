@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.artifacts.result.ResolvedVariantResult;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Computes the order in which the components of a resolved dependency graph have to be compiled, such that each
+ * component comes after all of its dependencies.
+ *
+ * <p>The order is a depth-first post-order: the dependencies of each component are visited in the order they were
+ * declared. The dependencies below each variant of a component are only walked once per graph. Conflict resolution can
+ * select different versions in different graphs, so nothing is shared between graphs, except for the order of a graph
+ * that was already computed.</p>
+ */
+public class ComponentOrder {
+    private final Map<ResolvedComponentResult, List<ComponentIdentifier>> orders = new ConcurrentHashMap<>();
+
+    /**
+     * Returns all components the root depends on, directly or transitively, dependencies first. The root itself is
+     * not part of the result.
+     */
+    public List<ComponentIdentifier> getDependenciesInOrder(ResolvedComponentResult root) {
+        return orders.computeIfAbsent(root, r -> new GraphWalk().getDependenciesInOrder(r));
+    }
+
+    /**
+     * Walks a single graph, remembering the closure of each variant of a component it already walked.
+     */
+    private static class GraphWalk {
+        private final Map<String, List<ComponentIdentifier>> closures = new HashMap<>();
+        private final List<String> inProgress = new ArrayList<>();
+        // The position in 'inProgress' of the outermost component where a dependency cycle was broken
+        private int cycleStart = Integer.MAX_VALUE;
+
+        List<ComponentIdentifier> getDependenciesInOrder(ResolvedComponentResult root) {
+            Set<ComponentIdentifier> result = new LinkedHashSet<>();
+            for (DependencyResult dependency : root.getDependencies())
+                addClosure(dependency, result);
+            result.remove(root.getId());
+            return Collections.unmodifiableList(new ArrayList<>(result));
+        }
+
+        private void addClosure(DependencyResult dependency, Set<ComponentIdentifier> result) {
+            if (!(dependency instanceof ResolvedDependencyResult))
+                return;
+            ResolvedComponentResult component = ((ResolvedDependencyResult) dependency).getSelected();
+            ResolvedVariantResult variant = ((ResolvedDependencyResult) dependency).getResolvedVariant();
+            result.addAll(getClosure(component, variant));
+        }
+
+        private List<ComponentIdentifier> getClosure(ResolvedComponentResult component,
+                ResolvedVariantResult variant) {
+            String key = component.getId().getDisplayName() + " " + variant.getDisplayName() + " "
+                    + variant.getAttributes();
+            List<ComponentIdentifier> closure = closures.get(key);
+            if (closure != null)
+                return closure;
+
+            // Dependency cycles are broken where they're detected
+            int position = inProgress.indexOf(key);
+            if (position != -1) {
+                cycleStart = Math.min(cycleStart, position);
+                return Collections.emptyList();
+            }
+
+            position = inProgress.size();
+            inProgress.add(key);
+            Set<ComponentIdentifier> result = new LinkedHashSet<>();
+            for (DependencyResult dependency : component.getDependenciesForVariant(variant))
+                addClosure(dependency, result);
+            result.add(component.getId());
+            inProgress.remove(position);
+
+            closure = Collections.unmodifiableList(new ArrayList<>(result));
+            // Closures of the components inside a broken cycle miss the components outside of it, so they're only
+            // complete once the walk is back at the start of the cycle
+            if (cycleStart >= position) {
+                cycleStart = Integer.MAX_VALUE;
+                closures.put(key, closure);
+            }
+            return closure;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Shares a {@link ComponentOrder} between all tasks of a build, so that tasks consuming the same resolved dependency
+ * graph only walk it once.
+ */
+public abstract class ComponentOrderCache implements BuildService<BuildServiceParameters.None> {
+    private final ComponentOrder componentOrder = new ComponentOrder();
+
+    public ComponentOrder getComponentOrder() {
+        return componentOrder;
+    }
+}
@@ -2,19 +2,30 @@ package com.verificationgentleman.gradle.hdvl.internal;
 
 import com.verificationgentleman.gradle.hdvl.HDVLPluginExtension;
 import com.verificationgentleman.gradle.hdvl.SourceSet;
+import com.verificationgentleman.gradle.hdvl.Tool;
 import org.gradle.api.NamedDomainObjectContainer;
 import org.gradle.api.NamedDomainObjectFactory;
 import org.gradle.api.Project;
 import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
 
 public class DefaultHDVLPluginExtension implements HDVLPluginExtension {
     private final Project project;
     private final NamedDomainObjectContainer<SourceSet> sourceSets;
+    private final NamedDomainObjectContainer<Tool> tools;
+    private final Property<Boolean> writeIfChanged;
+    private final Property<Boolean> compactArgsFiles;
+    private final Property<Boolean> flattenFullArgsFiles;
 
     public DefaultHDVLPluginExtension(Project project) {
         this.project = project;
         NamedDomainObjectFactory<SourceSet> sourceSetFactory = newSourceSetFactory(project.getObjects());
         sourceSets = project.getObjects().domainObjectContainer(SourceSet.class, sourceSetFactory);
+        tools = project.getObjects().domainObjectContainer(Tool.class,
+                name -> project.getObjects().newInstance(DefaultTool.class, name));
+        writeIfChanged = project.getObjects().property(Boolean.class).convention(false);
+        compactArgsFiles = project.getObjects().property(Boolean.class).convention(false);
+        flattenFullArgsFiles = project.getObjects().property(Boolean.class).convention(false);
     }
 
     private NamedDomainObjectFactory<SourceSet> newSourceSetFactory(ObjectFactory objectFactory) {
@@ -30,4 +41,24 @@ public class DefaultHDVLPluginExtension implements HDVLPluginExtension {
     public NamedDomainObjectContainer<SourceSet> getSourceSets() {
         return sourceSets;
     }
+
+    @Override
+    public NamedDomainObjectContainer<Tool> getTools() {
+        return tools;
+    }
+
+    @Override
+    public Property<Boolean> getWriteIfChanged() {
+        return writeIfChanged;
+    }
+
+    @Override
+    public Property<Boolean> getCompactArgsFiles() {
+        return compactArgsFiles;
+    }
+
+    @Override
+    public Property<Boolean> getFlattenFullArgsFiles() {
+        return flattenFullArgsFiles;
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import com.verificationgentleman.gradle.hdvl.GenArgsFile;
+import com.verificationgentleman.gradle.hdvl.GenQrunArgsFile;
+import com.verificationgentleman.gradle.hdvl.GenXrunArgsFile;
+import com.verificationgentleman.gradle.hdvl.Tool;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+
+import javax.inject.Inject;
+
+public class DefaultTool implements Tool {
+    private final String name;
+    private final Property<String> libraryName;
+    private final Property<String> includeDirOption;
+    private final Property<String> executable;
+    private final Class<? extends GenArgsFile> genArgsFileType;
+
+    @Inject
+    public DefaultTool(String name, ObjectFactory objectFactory) {
+        this.name = name;
+        libraryName = objectFactory.property(String.class);
+        includeDirOption = objectFactory.property(String.class);
+        executable = objectFactory.property(String.class).convention(name);
+        switch (name) {
+            case "xrun":
+                libraryName.convention("worklib");
+                includeDirOption.convention("-incdir ");
+                genArgsFileType = GenXrunArgsFile.class;
+                break;
+            case "qrun":
+                libraryName.convention("work");
+                includeDirOption.convention("+incdir+");
+                genArgsFileType = GenQrunArgsFile.class;
+                break;
+            default:
+                genArgsFileType = GenArgsFile.class;
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getCapitalizedName() {
+        return name.isEmpty() ? name : Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    @Override
+    public Property<String> getLibraryName() {
+        return libraryName;
+    }
+
+    @Override
+    public Property<String> getIncludeDirOption() {
+        return includeDirOption;
+    }
+
+    @Override
+    public Property<String> getExecutable() {
+        return executable;
+    }
+
+    /**
+     * Returns the type of the tasks generating args files. The known tools keep their own task types, so that they
+     * can still be selected by type.
+     */
+    public Class<? extends GenArgsFile> getGenArgsFileType() {
+        return genArgsFileType;
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers whether directories contain any files, for all tasks and transforms of a build. Directory listings read
+ * to compute the answers are also cached.
+ *
+ * <p>Walking a directory tree is expensive, especially on network file systems, and the same include directories are
+ * checked for every tool and every source set. Answers are cached for the duration of the build and saved to a
+ * snapshot file when the build finishes, so that the next build can reuse them.</p>
+ *
+ * <p>Answers are checked every time they are used, which is much cheaper than walking the directory again: a
+ * directory that has files records one of them, which must still exist, while a directory without any files records
+ * the modification times of all its (empty) subdirectories, which change when anything is added to them. This also
+ * applies to answers computed earlier in the same build, as the directories can be outputs of other tasks. Directories
+ * that no longer exist are dropped from the snapshot.</p>
+ */
+public abstract class DirectoryContentIndex implements BuildService<DirectoryContentIndex.Parameters>, AutoCloseable {
+    private static final Logger LOGGER = Logging.getLogger(DirectoryContentIndex.class);
+    private static final int SNAPSHOT_VERSION = 1;
+
+    public interface Parameters extends BuildServiceParameters {
+        RegularFileProperty getSnapshotFile();
+    }
+
+    private final Map<File, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<File, Listing> listings = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public DirectoryContentIndex() {
+        if (getParameters().getSnapshotFile().isPresent())
+            loadSnapshot(getParameters().getSnapshotFile().get().getAsFile());
+    }
+
+    /**
+     * Returns true if the given directory contains at least one file (recursively).
+     * Returns false if the argument does not exist or is not a directory.
+     */
+    public boolean hasFiles(File dir) {
+        File key = dir.getAbsoluteFile();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isStillValid()) {
+            hits.incrementAndGet();
+            return entry.witness != null;
+        }
+
+        misses.incrementAndGet();
+        entry = computeEntry(key);
+        entries.put(key, entry);
+        return entry.witness != null;
+    }
+
+    /**
+     * Drops the cached answers for all directories that contain the given file.
+     */
+    public void invalidate(File file) {
+        for (File dir = file.getAbsoluteFile(); dir != null; dir = dir.getParentFile()) {
+            entries.remove(dir);
+            listings.remove(dir);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public void close() {
+        LOGGER.info("HDVL directory content index: {} hits, {} misses", hits.get(), misses.get());
+        if (getParameters().getSnapshotFile().isPresent())
+            saveSnapshot(getParameters().getSnapshotFile().get().getAsFile());
+    }
+
+    private Entry computeEntry(File dir) {
+        Map<File, Long> emptyDirs = new LinkedHashMap<>();
+        File witness = findFile(dir, emptyDirs);
+        if (witness != null)
+            return new Entry(witness, null);
+        return new Entry(null, emptyDirs);
+    }
+
+    private File findFile(File dir, Map<File, Long> visitedDirs) {
+        Listing listing = list(dir);
+        visitedDirs.put(dir, listing.lastModified);
+        if (!listing.files.isEmpty())
+            return listing.files.get(0);
+        for (File subdir : listing.dirs) {
+            File witness = findFile(subdir, visitedDirs);
+            if (witness != null)
+                return witness;
+        }
+        return null;
+    }
+
+    // Listings are reused as long as the directory's modification time stays the same, which it doesn't when entries
+    // are added, removed or renamed. They are only kept for the current build.
+    private Listing list(File dir) {
+        long lastModified = dir.isDirectory() ? dir.lastModified() : -1L;
+        Listing listing = listings.get(dir);
+        if (listing != null && listing.lastModified == lastModified)
+            return listing;
+        listing = new Listing(dir, lastModified);
+        listings.put(dir, listing);
+        return listing;
+    }
+
+    private static class Listing {
+        final long lastModified;
+        final List<File> files = new ArrayList<>();
+        final List<File> dirs = new ArrayList<>();
+
+        Listing(File dir, long lastModified) {
+            this.lastModified = lastModified;
+            File[] contents = dir.listFiles();
+            if (contents == null)
+                return;
+            for (File f : contents) {
+                if (f.isFile())
+                    files.add(f);
+                else if (f.isDirectory())
+                    dirs.add(f);
+            }
+        }
+    }
+
+    private static class Entry {
+        final File witness;
+        final Map<File, Long> emptyDirs;
+
+        Entry(File witness, Map<File, Long> emptyDirs) {
+            this.witness = witness;
+            this.emptyDirs = emptyDirs;
+        }
+
+        boolean isStillValid() {
+            if (witness != null)
+                return witness.isFile();
+            for (Map.Entry<File, Long> emptyDir : emptyDirs.entrySet()) {
+                File dir = emptyDir.getKey();
+                long lastModified = dir.isDirectory() ? dir.lastModified() : -1L;
+                if (lastModified != emptyDir.getValue())
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private void loadSnapshot(File snapshotFile) {
+        if (!snapshotFile.isFile())
+            return;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_VERSION)
+                return;
+            int numEntries = in.readInt();
+            for (int i = 0; i < numEntries; i++) {
+                File dir = new File(in.readUTF());
+                if (in.readBoolean()) {
+                    entries.put(dir, new Entry(new File(in.readUTF()), null));
+                } else {
+                    int numEmptyDirs = in.readInt();
+                    Map<File, Long> emptyDirs = new LinkedHashMap<>();
+                    for (int j = 0; j < numEmptyDirs; j++)
+                        emptyDirs.put(new File(in.readUTF()), in.readLong());
+                    entries.put(dir, new Entry(null, emptyDirs));
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.info("Could not load HDVL directory content index from {}", snapshotFile, e);
+            entries.clear();
+        }
+    }
+
+    private void saveSnapshot(File snapshotFile) {
+        try {
+            Files.createDirectories(snapshotFile.getParentFile().toPath());
+            Path temp = Files.createTempFile(snapshotFile.getParentFile().toPath(), snapshotFile.getName(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    out.writeInt(SNAPSHOT_VERSION);
+                    Map<File, Entry> snapshot = new LinkedHashMap<>();
+                    for (Map.Entry<File, Entry> dirAndEntry : entries.entrySet())
+                        if (dirAndEntry.getKey().isDirectory())
+                            snapshot.put(dirAndEntry.getKey(), dirAndEntry.getValue());
+                    out.writeInt(snapshot.size());
+                    for (Map.Entry<File, Entry> dirAndEntry : snapshot.entrySet()) {
+                        Entry entry = dirAndEntry.getValue();
+                        out.writeUTF(dirAndEntry.getKey().getPath());
+                        out.writeBoolean(entry.witness != null);
+                        if (entry.witness != null) {
+                            out.writeUTF(entry.witness.getPath());
+                        } else {
+                            out.writeInt(entry.emptyDirs.size());
+                            for (Map.Entry<File, Long> emptyDir : entry.emptyDirs.entrySet()) {
+                                out.writeUTF(emptyDir.getKey().getPath());
+                                out.writeLong(emptyDir.getValue());
+                            }
+                        }
+                    }
+                }
+                try {
+                    Files.move(temp, snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            LOGGER.info("Could not save HDVL directory content index to {}", snapshotFile, e);
+        }
+    }
+}
@@ -44,4 +44,34 @@ public class FileUtils {
         }
         return false;
     }
+
+    /**
+     * Returns the directory out of the given ones that contains a file, or {@code null} if none of them does. If the
+     * directories are nested, the innermost one containing the file is returned.
+     */
+    public static File getContainingDir(File file, Iterable<File> dirs) {
+        File result = null;
+        for (File dir: dirs)
+            if (contains(dir, file)
+                    && (result == null || dir.getAbsolutePath().length() > result.getAbsolutePath().length()))
+                result = dir;
+        return result;
+    }
+
+    /**
+     * Returns whether a file is the given directory or is below it.
+     */
+    public static boolean contains(File dir, File file) {
+        String path = file.getAbsolutePath();
+        String dirPath = dir.getAbsolutePath();
+        return path.equals(dirPath) || path.startsWith(dirPath + File.separator);
+    }
+
+    /**
+     * Returns the path of a file relative to the given directory, like {@code Project.relativePath()}, but without
+     * needing a reference to the project.
+     */
+    public static String relativePath(File dir, File file) {
+        return dir.toPath().relativize(file.toPath()).toString();
+    }
 }
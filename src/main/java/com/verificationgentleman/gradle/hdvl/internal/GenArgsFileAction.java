@@ -0,0 +1,186 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import com.verificationgentleman.gradle.hdvl.systemverilog.FileOrder;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scans the sources of a source set and writes its args file from scratch, outside of the task thread.
+ */
+public abstract class GenArgsFileAction implements WorkAction<GenArgsFileAction.Parameters> {
+    public interface Parameters extends WorkParameters {
+        ConfigurableFileCollection getSvSourceFiles();
+
+        /**
+         * The directories that the paths matched by the order are relative to.
+         */
+        ConfigurableFileCollection getSourceRoots();
+
+        ConfigurableFileCollection getPrivateIncludeDirs();
+
+        ConfigurableFileCollection getExportedIncludeDirs();
+
+        ConfigurableFileCollection getCSourceFiles();
+
+        Property<FileOrder> getSvOrder();
+
+        Property<DirectoryContentIndex> getDirectoryContentIndex();
+
+        Property<ArgsFileModelCache> getModelCache();
+
+        Property<String> getModelKey();
+
+        Property<String> getIndexKey();
+
+        Property<String> getLibraryName();
+
+        Property<String> getIncludeDirOption();
+
+        RegularFileProperty getIndexFile();
+
+        RegularFileProperty getDestination();
+
+        Property<Boolean> getCompact();
+
+        Property<Boolean> getWriteIfChanged();
+
+        DirectoryProperty getTemporaryDir();
+    }
+
+    @Override
+    public void execute() {
+        Parameters parameters = getParameters();
+        try {
+            ArgsFileIndex index = newIndex();
+            // The index is only saved once the args file matches it, so it's never used to update a stale args file
+            write(index, parameters.getDestination().get().getAsFile(), parameters.getCompact().get(),
+                    parameters.getWriteIfChanged().get(), parameters.getLibraryName().get(),
+                    parameters.getIncludeDirOption().get());
+            index.save(parameters.getIndexFile().get().getAsFile());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create args file", e);
+        }
+    }
+
+    private ArgsFileIndex newIndex() {
+        String indexKey = getParameters().getIndexKey().get();
+        if (!getParameters().getModelCache().isPresent())
+            return new ArgsFileIndex(indexKey, scan());
+
+        ArgsFileIndex index = new ArgsFileIndex(indexKey,
+                getParameters().getModelCache().get().getModel(getParameters().getModelKey().get(), this::scan));
+        // Tasks that ran since the model was scanned could have added files to the include directories
+        index.getExportedIncludeDirs().replaceAll((dir, hasFiles) -> hasFiles(dir));
+        index.getPrivateIncludeDirs().replaceAll((dir, hasFiles) -> hasFiles(dir));
+        return index;
+    }
+
+    private ArgsFileIndex scan() {
+        Parameters parameters = getParameters();
+        CompiledFileOrder order = CompiledFileOrder.compile(parameters.getSvOrder().getOrNull());
+        ArgsFileIndex index = new ArgsFileIndex(parameters.getModelKey().get());
+        for (File f: parameters.getExportedIncludeDirs())
+            index.getExportedIncludeDirs().put(f, hasFiles(f));
+        for (File f: parameters.getPrivateIncludeDirs())
+            index.getPrivateIncludeDirs().put(f, hasFiles(f));
+
+        List<File> sourceDirs = new ArrayList<>(parameters.getSourceRoots().getFiles());
+        sourceDirs.addAll(parameters.getPrivateIncludeDirs().getFiles());
+        for (File f: parameters.getSvSourceFiles()) {
+            Integer rank = order.getRank(f, sourceDirs);
+            index.addSvSourceFile(f, rank != null ? rank : 0);
+        }
+        for (File f: parameters.getCSourceFiles())
+            index.getCSourceFiles().add(f);
+        if (order.isByDependencies())
+            sortByDependencies(index);
+        return index;
+    }
+
+    // The rank of each file becomes its position in the dependency order
+    private void sortByDependencies(ArgsFileIndex index) {
+        try {
+            List<File> includeDirs = new ArrayList<>(getParameters().getPrivateIncludeDirs().getFiles());
+            includeDirs.addAll(getParameters().getExportedIncludeDirs().getFiles());
+            SvDependencyScanner scanner = new SvDependencyScanner(
+                    getParameters().getTemporaryDir().file("sv-dependencies").get().getAsFile());
+            List<File> sorted = new SvDependencyOrder(scanner, includeDirs).sort(index.getSvSourceFiles());
+            scanner.save();
+            for (File f: sorted)
+                index.removeSvSourceFile(f);
+            for (int i = 0; i < sorted.size(); i++)
+                index.addSvSourceFile(sorted.get(i), i);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean hasFiles(File dir) {
+        if (getParameters().getDirectoryContentIndex().isPresent())
+            return getParameters().getDirectoryContentIndex().get().hasFiles(dir);
+        return FileUtils.hasFiles(dir);
+    }
+
+    /**
+     * Writes the args file for an index. This is also used directly by the task, when it could update the index
+     * incrementally.
+     */
+    public static void write(ArgsFileIndex index, File destination, boolean compact, boolean writeIfChanged,
+            String libraryName, String includeDirOption) throws IOException {
+        OutputFiles.write(destination, writeIfChanged, writer -> {
+            if (compact)
+                writer.write(ArgsFileFormat.RELATIVE_PATHS_HEADER + "\n");
+            writeExportedHeaders(writer, index, destination, compact, includeDirOption);
+            writer.write("-makelib " + libraryName + "\n");
+            for (Map.Entry<File, Boolean> entry: index.getPrivateIncludeDirs().entrySet())
+                if (entry.getValue())
+                    writer.write("  " + includeDirOption + ArgsFileFormat.path(entry.getKey(), destination, compact)
+                            + "\n");
+            for (File f: index.getSvSourceFiles())
+                writer.write("  " + ArgsFileFormat.path(f, destination, compact) + "\n");
+            for (File f: index.getCSourceFiles())
+                writer.write("  " + ArgsFileFormat.path(f, destination, compact) + "\n");
+            writer.write("-endlib\n");
+        });
+    }
+
+    // TODO Implement correct exported dir handling
+    // Adding an '-incdir' outside of '-makelib' for each exported header dir will make it visible to other '-makelibs'
+    // that declare a dependency on this project. It will also make it visible to other projects that haven't declared
+    // a dependency on this project. If such projects include headers from this project, there will be no compile error.
+    // This isn't consistent with what would happen in a multi-step compilation flow, where an error would be issued.
+    private static void writeExportedHeaders(Writer writer, ArgsFileIndex index, File destination, boolean compact,
+            String includeDirOption) throws IOException {
+        for (Map.Entry<File, Boolean> entry: index.getExportedIncludeDirs().entrySet())
+            if (entry.getValue())
+                writer.write(includeDirOption + ArgsFileFormat.path(entry.getKey(), destination, compact) + "\n");
+    }
+}
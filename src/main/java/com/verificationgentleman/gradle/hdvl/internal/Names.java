@@ -95,6 +95,14 @@ public abstract class Names {
         }
     }
 
+    public static String getCompileTaskName(String toolName) {
+        return toLowerCamelCase("compileWith", toolName);
+    }
+
+    public static String getCompiledLibraryElementsConfigurationName(String toolName) {
+        return toLowerCamelCase(toolName, "CompiledLibraryElements");
+    }
+
     public static String getTestTaskName(String toolName) {
         return toLowerCamelCase("testWith", toolName);
     }
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+public class OutputFiles {
+
+    private OutputFiles() {}
+
+    public interface Contents {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    /**
+     * Writes a generated file.
+     *
+     * <p>If {@code onlyIfChanged} is set, the contents are first written to a temporary file next to the destination.
+     * The destination is only replaced, atomically, if its contents differ. Otherwise it is left untouched, so that
+     * its modification time doesn't change. Tools that decide what to recompile based on time stamps then don't see
+     * it as changed.</p>
+     */
+    public static void write(File destination, boolean onlyIfChanged, Contents contents) throws IOException {
+        if (!onlyIfChanged) {
+            try (Writer writer = newWriter(destination.toPath())) {
+                contents.writeTo(writer);
+            }
+            return;
+        }
+
+        Path target = destination.toPath();
+        Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), destination.getName(), ".tmp");
+        try {
+            try (Writer writer = newWriter(temp)) {
+                contents.writeTo(writer);
+            }
+            if (hasSameContents(temp, target))
+                return;
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static Writer newWriter(Path path) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), StandardCharsets.UTF_8));
+    }
+
+    private static boolean hasSameContents(Path file, Path other) throws IOException {
+        if (!Files.isRegularFile(other) || Files.size(file) != Files.size(other))
+            return false;
+        return Arrays.equals(hash(file), hash(other));
+    }
+
+    private static byte[] hash(Path file) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) != -1) {
+                    // Only needed for the digest
+                }
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The files a SystemVerilog file transitively depends on, through {@code `include} directives and references to
+ * packages declared in other source files.
+ *
+ * <p>As for {@link SvDependencyOrder}, packages declared in included files are attributed to the source file including
+ * them.</p>
+ */
+public class SvDependencyGraph {
+    private final SvDependencyScanner scanner;
+    private final List<File> includeDirs;
+    private final Map<String, List<File>> declaringFiles = new HashMap<>();
+
+    /**
+     * @param sources the source files that can declare packages
+     */
+    public SvDependencyGraph(SvDependencyScanner scanner, Collection<File> sources, Collection<File> includeDirs)
+            throws IOException {
+        this.scanner = scanner;
+        this.includeDirs = new ArrayList<>(includeDirs);
+        for (File source : sources)
+            for (String declaredPackage : getDeclaredPackages(source, new HashSet<>()))
+                declaringFiles.computeIfAbsent(declaredPackage, p -> new ArrayList<>()).add(source);
+    }
+
+    private Set<String> getDeclaredPackages(File file, Set<File> visited) throws IOException {
+        Set<String> result = new LinkedHashSet<>();
+        if (!visited.add(file.getAbsoluteFile()))
+            return result;
+        SvDependencyScanner.Result scanned = scanner.scan(file);
+        result.addAll(scanned.getDeclaredPackages());
+        for (String include : scanned.getIncludes()) {
+            File includedFile = SvDependencyOrder.resolveInclude(file, include, includeDirs);
+            if (includedFile != null)
+                result.addAll(getDeclaredPackages(includedFile, visited));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the given file together with all files it transitively depends on.
+     */
+    public Set<File> getDependencies(File file) throws IOException {
+        Set<File> result = new LinkedHashSet<>();
+        Deque<File> queue = new ArrayDeque<>();
+        queue.add(file.getAbsoluteFile());
+        while (!queue.isEmpty()) {
+            File next = queue.remove();
+            if (!result.add(next))
+                continue;
+            SvDependencyScanner.Result scanned = scanner.scan(next);
+            for (String include : scanned.getIncludes()) {
+                File includedFile = SvDependencyOrder.resolveInclude(next, include, includeDirs);
+                if (includedFile != null)
+                    queue.add(includedFile.getAbsoluteFile());
+            }
+            for (String referencedPackage : scanned.getReferencedPackages())
+                for (File declaringFile : declaringFiles.getOrDefault(referencedPackage, Collections.emptyList()))
+                    queue.add(declaringFile.getAbsoluteFile());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Orders SystemVerilog files such that files declaring packages come before the files that use them.
+ *
+ * <p>Files included by a source file count as part of it, so packages declared or referenced in included headers
+ * are attributed to the source file. Included files are looked up next to the including file first and then in the
+ * include directories.</p>
+ *
+ * <p>The order is otherwise kept stable: whenever several files could come next, the one that came first in the
+ * original order is taken. Files that are part of a dependency cycle are left in their original order, after all
+ * other files.</p>
+ */
+public class SvDependencyOrder {
+    private static final Logger LOGGER = Logging.getLogger(SvDependencyOrder.class);
+
+    private final SvDependencyScanner scanner;
+    private final List<File> includeDirs;
+
+    public SvDependencyOrder(SvDependencyScanner scanner, Collection<File> includeDirs) {
+        this.scanner = scanner;
+        this.includeDirs = new ArrayList<>(includeDirs);
+    }
+
+    public List<File> sort(List<File> files) throws IOException {
+        List<Set<String>> declared = new ArrayList<>(files.size());
+        List<Set<String>> referenced = new ArrayList<>(files.size());
+        Map<String, List<Integer>> declaringFiles = new HashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            Set<String> declaredPackages = new LinkedHashSet<>();
+            Set<String> referencedPackages = new LinkedHashSet<>();
+            collect(files.get(i), declaredPackages, referencedPackages, new HashSet<>());
+            declared.add(declaredPackages);
+            referenced.add(referencedPackages);
+            for (String declaredPackage : declaredPackages)
+                declaringFiles.computeIfAbsent(declaredPackage, p -> new ArrayList<>()).add(i);
+        }
+
+        List<List<Integer>> dependents = new ArrayList<>(files.size());
+        int[] numDependencies = new int[files.size()];
+        for (int i = 0; i < files.size(); i++)
+            dependents.add(new ArrayList<>());
+        for (int i = 0; i < files.size(); i++) {
+            Set<Integer> dependencies = new HashSet<>();
+            for (String referencedPackage : referenced.get(i))
+                for (int dependency : declaringFiles.getOrDefault(referencedPackage, Collections.emptyList()))
+                    if (dependency != i)
+                        dependencies.add(dependency);
+            for (int dependency : dependencies)
+                dependents.get(dependency).add(i);
+            numDependencies[i] = dependencies.size();
+        }
+
+        PriorityQueue<Integer> ready = new PriorityQueue<>();
+        for (int i = 0; i < files.size(); i++)
+            if (numDependencies[i] == 0)
+                ready.add(i);
+
+        List<File> result = new ArrayList<>(files.size());
+        boolean[] done = new boolean[files.size()];
+        while (!ready.isEmpty()) {
+            int next = ready.poll();
+            result.add(files.get(next));
+            done[next] = true;
+            for (int dependent : dependents.get(next))
+                if (--numDependencies[dependent] == 0)
+                    ready.add(dependent);
+        }
+
+        if (result.size() < files.size()) {
+            List<File> cycle = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++)
+                if (!done[i])
+                    cycle.add(files.get(i));
+            LOGGER.warn("Could not order SystemVerilog files by their dependencies, because of a dependency cycle "
+                    + "between: " + cycle);
+            result.addAll(cycle);
+        }
+        return result;
+    }
+
+    private void collect(File file, Set<String> declaredPackages, Set<String> referencedPackages, Set<File> visited)
+            throws IOException {
+        if (!visited.add(file.getAbsoluteFile()))
+            return;
+        SvDependencyScanner.Result result = scanner.scan(file);
+        declaredPackages.addAll(result.getDeclaredPackages());
+        referencedPackages.addAll(result.getReferencedPackages());
+        for (String include : result.getIncludes()) {
+            File includedFile = resolveInclude(file, include, includeDirs);
+            if (includedFile != null)
+                collect(includedFile, declaredPackages, referencedPackages, visited);
+        }
+        referencedPackages.removeAll(declaredPackages);
+    }
+
+    /**
+     * Looks up an included file next to the including file and then in the include directories.
+     *
+     * @return the included file, or {@code null} if it can't be found
+     */
+    static File resolveInclude(File includingFile, String include, List<File> includeDirs) {
+        File candidate = new File(include);
+        if (candidate.isAbsolute())
+            return candidate.isFile() ? candidate : null;
+        candidate = new File(includingFile.getParentFile(), include);
+        if (candidate.isFile())
+            return candidate;
+        for (File includeDir : includeDirs) {
+            candidate = new File(includeDir, include);
+            if (candidate.isFile())
+                return candidate;
+        }
+        return null;
+    }
+}
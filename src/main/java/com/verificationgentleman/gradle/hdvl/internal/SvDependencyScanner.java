@@ -0,0 +1,278 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Extracts the package declarations, package references and included files of SystemVerilog files.
+ *
+ * <p>The scan is purely lexical: comments and strings are skipped, {@code package <name>} declares a package and
+ * {@code <name>::} references a package (or a class, which callers filter out by only considering declared
+ * packages). This is much faster than parsing and good enough to order files for compilation.</p>
+ *
+ * <p>Results are cached by file content. The cache is loaded from and saved to a file, so that only changed files
+ * have to be scanned again in the next build. A file whose size and modification time didn't change isn't even read
+ * again.</p>
+ */
+public class SvDependencyScanner {
+    private static final String VERSION = "hdvl-sv-dependencies 1";
+
+    private final File cacheFile;
+    private final Map<File, Result> results = new HashMap<>();
+
+    public static class Result {
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+        private final Set<String> declaredPackages = new LinkedHashSet<>();
+        private final Set<String> referencedPackages = new LinkedHashSet<>();
+        private final List<String> includes = new ArrayList<>();
+
+        Result(long size, long lastModified, String hash) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        public Set<String> getDeclaredPackages() {
+            return declaredPackages;
+        }
+
+        public Set<String> getReferencedPackages() {
+            return referencedPackages;
+        }
+
+        /**
+         * Returns the file names used in {@code `include} directives, as written.
+         */
+        public List<String> getIncludes() {
+            return includes;
+        }
+    }
+
+    /**
+     * @param cacheFile where results are stored between builds, or {@code null} to only keep them in memory
+     */
+    public SvDependencyScanner(File cacheFile) throws IOException {
+        this.cacheFile = cacheFile;
+        if (cacheFile != null)
+            load();
+    }
+
+    public Result scan(File file) throws IOException {
+        File key = file.getAbsoluteFile();
+        long size = key.length();
+        long lastModified = key.lastModified();
+        Result cached = results.get(key);
+        if (cached != null && cached.size == size && cached.lastModified == lastModified)
+            return cached;
+
+        byte[] contents = Files.readAllBytes(key.toPath());
+        String hash = hash(contents);
+        Result result = new Result(size, lastModified, hash);
+        if (cached != null && cached.hash.equals(hash)) {
+            result.declaredPackages.addAll(cached.declaredPackages);
+            result.referencedPackages.addAll(cached.referencedPackages);
+            result.includes.addAll(cached.includes);
+        } else {
+            scan(new String(contents, StandardCharsets.ISO_8859_1), result);
+        }
+        results.put(key, result);
+        return result;
+    }
+
+    static void scan(String text, Result result) {
+        int length = text.length();
+        int i = 0;
+        String previousIdentifier = null;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '/' && i + 1 < length && text.charAt(i + 1) == '/') {
+                i = skipToEndOfLine(text, i);
+            } else if (c == '/' && i + 1 < length && text.charAt(i + 1) == '*') {
+                int end = text.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (c == '"') {
+                i = skipString(text, i);
+                previousIdentifier = null;
+            } else if (c == '\\') {
+                // Escaped identifier
+                while (i < length && !Character.isWhitespace(text.charAt(i)))
+                    i++;
+                previousIdentifier = null;
+            } else if (c == '`') {
+                int start = ++i;
+                while (i < length && isIdentifierPart(text.charAt(i)))
+                    i++;
+                if (text.startsWith("include", start) && i - start == "include".length())
+                    i = scanInclude(text, i, result);
+                previousIdentifier = null;
+            } else if (isIdentifierStart(c)) {
+                int start = i;
+                while (i < length && isIdentifierPart(text.charAt(i)))
+                    i++;
+                String identifier = text.substring(start, i);
+                if ("package".equals(previousIdentifier)) {
+                    if (identifier.equals("automatic") || identifier.equals("static"))
+                        continue;
+                    result.declaredPackages.add(identifier);
+                } else if (isFollowedByScope(text, i)) {
+                    result.referencedPackages.add(identifier);
+                }
+                previousIdentifier = identifier;
+            } else if (Character.isDigit(c)) {
+                while (i < length && (isIdentifierPart(text.charAt(i)) || text.charAt(i) == '\''))
+                    i++;
+                previousIdentifier = null;
+            } else {
+                if (!Character.isWhitespace(c))
+                    previousIdentifier = null;
+                i++;
+            }
+        }
+        result.referencedPackages.removeAll(result.declaredPackages);
+    }
+
+    private static int scanInclude(String text, int i, Result result) {
+        int length = text.length();
+        while (i < length && (text.charAt(i) == ' ' || text.charAt(i) == '\t'))
+            i++;
+        if (i >= length || (text.charAt(i) != '"' && text.charAt(i) != '<'))
+            return i;
+        char closing = text.charAt(i) == '"' ? '"' : '>';
+        int end = text.indexOf(closing, i + 1);
+        if (end < 0)
+            return length;
+        result.includes.add(text.substring(i + 1, end));
+        return end + 1;
+    }
+
+    private static boolean isFollowedByScope(String text, int i) {
+        int length = text.length();
+        while (i < length && Character.isWhitespace(text.charAt(i)))
+            i++;
+        return i + 1 < length && text.charAt(i) == ':' && text.charAt(i + 1) == ':';
+    }
+
+    private static int skipToEndOfLine(String text, int i) {
+        int end = text.indexOf('\n', i);
+        return end < 0 ? text.length() : end + 1;
+    }
+
+    private static int skipString(String text, int i) {
+        int length = text.length();
+        i++;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (c == '\\')
+                i += 2;
+            else if (c == '"' || c == '\n')
+                return i + 1;
+            else
+                i++;
+        }
+        return length;
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private static String hash(byte[] contents) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(contents);
+            StringBuilder result = new StringBuilder();
+            for (byte b : digest)
+                result.append(String.format("%02x", b));
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void load() throws IOException {
+        if (!cacheFile.isFile())
+            return;
+
+        try (BufferedReader reader = Files.newBufferedReader(cacheFile.toPath(), StandardCharsets.UTF_8)) {
+            if (!VERSION.equals(reader.readLine()))
+                return;
+            Result current = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(" ", 2);
+                if (fields.length != 2) {
+                    results.clear();
+                    return;
+                }
+                switch (fields[0]) {
+                    case "file":
+                        String[] fileFields = fields[1].split(" ", 4);
+                        current = new Result(Long.parseLong(fileFields[0]), Long.parseLong(fileFields[1]),
+                                fileFields[2]);
+                        results.put(new File(fileFields[3]), current);
+                        break;
+                    case "package":
+                        current.declaredPackages.add(fields[1]);
+                        break;
+                    case "ref":
+                        current.referencedPackages.add(fields[1]);
+                        break;
+                    case "include":
+                        current.includes.add(fields[1]);
+                        break;
+                    default:
+                        results.clear();
+                        return;
+                }
+            }
+        } catch (NumberFormatException | NullPointerException | ArrayIndexOutOfBoundsException e) {
+            results.clear();
+        }
+    }
+
+    public void save() throws IOException {
+        if (cacheFile == null)
+            return;
+
+        Files.createDirectories(cacheFile.getParentFile().toPath());
+        try (BufferedWriter writer = Files.newBufferedWriter(cacheFile.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(VERSION + "\n");
+            for (Map.Entry<File, Result> entry : results.entrySet()) {
+                Result result = entry.getValue();
+                writer.write("file " + result.size + " " + result.lastModified + " " + result.hash + " "
+                        + entry.getKey().getPath() + "\n");
+                for (String declaredPackage : result.declaredPackages)
+                    writer.write("package " + declaredPackage + "\n");
+                for (String referencedPackage : result.referencedPackages)
+                    writer.write("ref " + referencedPackage + "\n");
+                for (String include : result.includes)
+                    writer.write("include " + include + "\n");
+            }
+        }
+    }
+}
@@ -8,23 +8,49 @@ import org.gradle.api.artifacts.transform.TransformAction;
 import org.gradle.api.artifacts.transform.TransformOutputs;
 import org.gradle.api.artifacts.transform.TransformParameters;
 import org.gradle.api.file.FileSystemLocation;
+import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 
-public abstract class WriteXrunArgsFile implements TransformAction<TransformParameters.None> {
+/**
+ * Writes the args file for a consumed source archive, in the dialect of a tool.
+ */
+public abstract class WriteArgsFile implements TransformAction<WriteArgsFile.Parameters> {
+    public interface Parameters extends TransformParameters {
+        /**
+         * The name of the tool, used in the name of the args file.
+         */
+        @Input
+        Property<String> getToolName();
+
+        @Input
+        Property<String> getLibraryName();
+
+        @Input
+        Property<String> getIncludeDirOption();
+
+        @Internal
+        Property<DirectoryContentIndex> getDirectoryContentIndex();
+
+        @Input
+        Property<Boolean> getCompact();
+    }
+
     @InputArtifact
     public abstract Provider<FileSystemLocation> getInputArtifact();
 
     @Override
     public void transform(TransformOutputs outputs) {
         File input = getInputArtifact().get().getAsFile();
-        File xrunArgsFile = outputs.file(input.getName() + ".xrun_args.f");
+        File argsFile = outputs.file(input.getName() + "." + getParameters().getToolName().get() + "_args.f");
         DefaultHDVLCompileSpec compileSpec = getCompileSpec(input);
-        writeXrunArgsFile(xrunArgsFile, compileSpec);
+        writeArgsFile(argsFile, compileSpec);
     }
 
     private static DefaultHDVLCompileSpec getCompileSpec(File input) {
@@ -60,23 +86,26 @@ public abstract class WriteXrunArgsFile implements TransformAction<TransformPara
         }
     }
 
-    private static void writeXrunArgsFile(File xrunArgsFile, HDVLCompileSpec compileSpec) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(xrunArgsFile, true))) {
+    private void writeArgsFile(File argsFile, HDVLCompileSpec compileSpec) {
+        String includeDirOption = getParameters().getIncludeDirOption().get();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(argsFile, true))) {
+            if (isCompact())
+                writer.write(ArgsFileFormat.RELATIVE_PATHS_HEADER + "\n");
             for (File svExportedHeaderDir: compileSpec.getSvExportedHeaderDirs()) {
-                if (FileUtils.hasFiles(svExportedHeaderDir)) {
-                    writer.write("-incdir " + svExportedHeaderDir + "\n");
+                if (hasFiles(svExportedHeaderDir)) {
+                    writer.write(includeDirOption + path(svExportedHeaderDir, argsFile) + "\n");
                 }
             }
-            writer.write("-makelib worklib\n");
+            writer.write("-makelib " + getParameters().getLibraryName().get() + "\n");
             for (File svPrivateIncludeDir: compileSpec.getSvPrivateIncludeDirs()) {
-                if (FileUtils.hasFiles(svPrivateIncludeDir)) {
-                    writer.write("  -incdir " + svPrivateIncludeDir + "\n");
+                if (hasFiles(svPrivateIncludeDir)) {
+                    writer.write("  " + includeDirOption + path(svPrivateIncludeDir, argsFile) + "\n");
                 }
             }
             for (File svSourceFile : compileSpec.getSvSourceFiles())
-                writer.write("  " + svSourceFile + "\n");
+                writer.write("  " + path(svSourceFile, argsFile) + "\n");
             for (File cSourceFile : compileSpec.getCSourceFiles())
-                writer.write("  " + cSourceFile + "\n");
+                writer.write("  " + path(cSourceFile, argsFile) + "\n");
             writer.write("-endlib\n");
         }
         catch (IOException ex) {
@@ -84,4 +113,18 @@ public abstract class WriteXrunArgsFile implements TransformAction<TransformPara
         }
     }
 
+    private boolean isCompact() {
+        return getParameters().getCompact().getOrElse(false);
+    }
+
+    private String path(File file, File argsFile) {
+        return ArgsFileFormat.path(file, argsFile, isCompact());
+    }
+
+    private boolean hasFiles(File dir) {
+        if (getParameters().getDirectoryContentIndex().isPresent())
+            return getParameters().getDirectoryContentIndex().get().hasFiles(dir);
+        return FileUtils.hasFiles(dir);
+    }
+
 }
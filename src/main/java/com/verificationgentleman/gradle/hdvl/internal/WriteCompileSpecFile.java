@@ -1,22 +1,32 @@
 package com.verificationgentleman.gradle.hdvl.internal;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.verificationgentleman.gradle.hdvl.systemverilog.FileOrder;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.ConfigurableFileCollection;
-import org.gradle.api.file.FileTree;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.ProjectLayout;
 import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.*;
+import org.gradle.workers.WorkerExecutor;
 
+import javax.inject.Inject;
 import java.io.File;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Writes the compile spec of the main source set, with all paths relative to {@link #getRootDirectory()}, so that
+ * consumers can resolve them against the location where they unpacked the sources. This also makes the task
+ * cacheable across checkouts.
+ */
+@CacheableTask
 public abstract class WriteCompileSpecFile extends DefaultTask {
     private final RegularFileProperty destination;
+    private final DirectoryProperty rootDirectory;
+    private final ConfigurableFileCollection sourceRoots;
+    private final Property<Boolean> writeIfChanged;
 
     private final ConfigurableFileCollection svSourceFiles;
     private final ConfigurableFileCollection svPrivateIncludeDirs;
@@ -24,12 +34,16 @@ public abstract class WriteCompileSpecFile extends DefaultTask {
     private final ConfigurableFileCollection cSourceFiles;
 
 
-    public WriteCompileSpecFile() {
-        destination = getProject().getObjects().fileProperty();
-        svSourceFiles = getProject().getObjects().fileCollection();
-        svPrivateIncludeDirs = getProject().getObjects().fileCollection();
-        svExportedHeaderDirs = getProject().getObjects().fileCollection();
-        cSourceFiles = getProject().getObjects().fileCollection();
+    @Inject
+    public WriteCompileSpecFile(ObjectFactory objectFactory, ProjectLayout projectLayout) {
+        destination = objectFactory.fileProperty();
+        rootDirectory = objectFactory.directoryProperty().convention(projectLayout.getProjectDirectory());
+        sourceRoots = objectFactory.fileCollection();
+        writeIfChanged = objectFactory.property(Boolean.class).convention(false);
+        svSourceFiles = objectFactory.fileCollection();
+        svPrivateIncludeDirs = objectFactory.fileCollection();
+        svExportedHeaderDirs = objectFactory.fileCollection();
+        cSourceFiles = objectFactory.fileCollection();
     }
 
     @OutputFile
@@ -37,9 +51,53 @@ public abstract class WriteCompileSpecFile extends DefaultTask {
         return destination;
     }
 
+    /**
+     * The directory the paths in the compile spec are relative to.
+     */
+    @Internal
+    public DirectoryProperty getRootDirectory() {
+        return rootDirectory;
+    }
+
+    /**
+     * The directories containing the sources. The paths of the sources are only tracked relative to these
+     * directories, so their locations have to be tracked separately, using {@link #getSourceRootPaths()}.
+     */
+    @Internal
+    public ConfigurableFileCollection getSourceRoots() {
+        return sourceRoots;
+    }
+
+    /**
+     * The locations of the source and include directories, relative to {@link #getRootDirectory()}.
+     */
+    @Input
+    public List<String> getSourceRootPaths() {
+        List<String> result = new ArrayList<>();
+        for (File f: sourceRoots)
+            result.add(relativePath(f));
+        for (File f: svPrivateIncludeDirs)
+            result.add(relativePath(f));
+        for (File f: svExportedHeaderDirs)
+            result.add(relativePath(f));
+        return result;
+    }
+
+    private String relativePath(File file) {
+        return rootDirectory.get().getAsFile().toPath().relativize(file.toPath()).toString();
+    }
+
+    /**
+     * Whether to leave the compile spec file untouched if its contents didn't change.
+     */
+    @Internal
+    public Property<Boolean> getWriteIfChanged() {
+        return writeIfChanged;
+    }
+
     @InputFiles
     @SkipWhenEmpty
-    @PathSensitive(PathSensitivity.ABSOLUTE)
+    @PathSensitive(PathSensitivity.RELATIVE)
     public ConfigurableFileCollection getSvSource() {
         return svSourceFiles;
     }
@@ -50,66 +108,41 @@ public abstract class WriteCompileSpecFile extends DefaultTask {
 
     @InputFiles
     @SkipWhenEmpty
-    @PathSensitive(PathSensitivity.ABSOLUTE)
+    @PathSensitive(PathSensitivity.RELATIVE)
     public ConfigurableFileCollection getSvPrivateIncludeDirs() {
         return svPrivateIncludeDirs;
     }
 
     @InputFiles
     @SkipWhenEmpty
-    @PathSensitive(PathSensitivity.ABSOLUTE)
+    @PathSensitive(PathSensitivity.RELATIVE)
     public ConfigurableFileCollection getSvExportedHeaderDirs() {
         return svExportedHeaderDirs;
     }
 
     @InputFiles
     @SkipWhenEmpty
-    @PathSensitive(PathSensitivity.ABSOLUTE)
+    @PathSensitive(PathSensitivity.RELATIVE)
     public ConfigurableFileCollection getCSource() {
         return cSourceFiles;
     }
 
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
     @TaskAction
     protected void generateJson() {
-        DefaultHDVLCompileSpec compileSpec = new DefaultHDVLCompileSpec(getOrderedSystemVerilogSourceFiles(),
-                svPrivateIncludeDirs.getFiles(), svExportedHeaderDirs.getFiles(), cSourceFiles.getFiles());
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            SimpleModule module = new SimpleModule();
-            module.addSerializer(File.class, new FileSerializer(getProject().getProjectDir()));
-            objectMapper.registerModule(module);
-
-            objectMapper.writerWithDefaultPrettyPrinter().writeValue(destination.get().getAsFile(), compileSpec);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    // TODO Fix duplication with `AbstractGenArgsFileTask`
-    private List<File> getOrderedSystemVerilogSourceFiles() {
-        if (!getSvSourceOrder().isPresent() || (getSvSourceOrder().get().getFirst() == null && getSvSourceOrder().get().getLast() == null))
-            return new ArrayList<>(getSvSource().getFiles());
-
-        FileTree firstFiles = newEmptyFileTree();
-        FileTree lastFiles = newEmptyFileTree();
-
-        String first = getSvSourceOrder().get().getFirst();
-        if (first != null)
-            firstFiles = getSvSource().getAsFileTree().matching(patternFilterable -> patternFilterable.include(first));
-
-        String last = getSvSourceOrder().get().getLast();
-        if (last != null)
-            lastFiles = getSvSource().getAsFileTree().matching(patternFilterable -> patternFilterable.include(last));
-
-        List<File> result = new ArrayList<>();
-        result.addAll(firstFiles.getFiles());
-        result.addAll(getSvSource().minus(firstFiles).minus(lastFiles).getFiles());
-        result.addAll(lastFiles.getFiles());
-
-        return result;
-    }
-
-    private FileTree newEmptyFileTree() {
-        return getProject().files().getAsFileTree();
+        getWorkerExecutor().noIsolation().submit(WriteCompileSpecFileAction.class, parameters -> {
+            parameters.getDestination().set(destination);
+            parameters.getRootDirectory().set(rootDirectory);
+            parameters.getSourceRoots().from(sourceRoots);
+            parameters.getWriteIfChanged().set(writeIfChanged);
+            parameters.getSvSourceFiles().from(svSourceFiles);
+            parameters.getSvSourceOrder().set(getSvSourceOrder());
+            parameters.getSvPrivateIncludeDirs().from(svPrivateIncludeDirs);
+            parameters.getSvExportedHeaderDirs().from(svExportedHeaderDirs);
+            parameters.getCSourceFiles().from(cSourceFiles);
+            parameters.getTemporaryDir().set(getTemporaryDir());
+        });
     }
 }
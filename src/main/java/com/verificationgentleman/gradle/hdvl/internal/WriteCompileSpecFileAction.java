@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.internal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.verificationgentleman.gradle.hdvl.systemverilog.FileOrder;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Orders the sources of the main source set and writes its compile spec, outside of the task thread.
+ */
+public abstract class WriteCompileSpecFileAction implements WorkAction<WriteCompileSpecFileAction.Parameters> {
+    public interface Parameters extends WorkParameters {
+        RegularFileProperty getDestination();
+
+        DirectoryProperty getRootDirectory();
+
+        /**
+         * The directories that the paths matched by the order are relative to.
+         */
+        ConfigurableFileCollection getSourceRoots();
+
+        Property<Boolean> getWriteIfChanged();
+
+        ConfigurableFileCollection getSvSourceFiles();
+
+        Property<FileOrder> getSvSourceOrder();
+
+        ConfigurableFileCollection getSvPrivateIncludeDirs();
+
+        ConfigurableFileCollection getSvExportedHeaderDirs();
+
+        ConfigurableFileCollection getCSourceFiles();
+
+        DirectoryProperty getTemporaryDir();
+    }
+
+    @Override
+    public void execute() {
+        Parameters parameters = getParameters();
+        try {
+            DefaultHDVLCompileSpec compileSpec = new DefaultHDVLCompileSpec(getOrderedSystemVerilogSourceFiles(),
+                    parameters.getSvPrivateIncludeDirs().getFiles(), parameters.getSvExportedHeaderDirs().getFiles(),
+                    parameters.getCSourceFiles().getFiles());
+            ObjectMapper objectMapper = new ObjectMapper();
+            SimpleModule module = new SimpleModule();
+            module.addSerializer(File.class, new FileSerializer(parameters.getRootDirectory().get().getAsFile()));
+            objectMapper.registerModule(module);
+
+            OutputFiles.write(parameters.getDestination().get().getAsFile(), parameters.getWriteIfChanged().get(),
+                    writer -> {
+                objectMapper.writerWithDefaultPrettyPrinter().writeValue(writer, compileSpec);
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private List<File> getOrderedSystemVerilogSourceFiles() throws IOException {
+        Parameters parameters = getParameters();
+        CompiledFileOrder order = CompiledFileOrder.compile(parameters.getSvSourceOrder().getOrNull());
+        List<File> sourceDirs = new ArrayList<>(parameters.getSourceRoots().getFiles());
+        sourceDirs.addAll(parameters.getSvPrivateIncludeDirs().getFiles());
+        List<File> result = order.sort(parameters.getSvSourceFiles(), sourceDirs);
+        if (!order.isByDependencies())
+            return result;
+
+        List<File> includeDirs = new ArrayList<>(parameters.getSvPrivateIncludeDirs().getFiles());
+        includeDirs.addAll(parameters.getSvExportedHeaderDirs().getFiles());
+        SvDependencyScanner scanner = new SvDependencyScanner(
+                parameters.getTemporaryDir().file("sv-dependencies").get().getAsFile());
+        result = new SvDependencyOrder(scanner, includeDirs).sort(result);
+        scanner.save();
+        return result;
+    }
+}
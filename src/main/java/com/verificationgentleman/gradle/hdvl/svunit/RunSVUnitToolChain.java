@@ -15,4 +15,18 @@ public interface RunSVUnitToolChain extends ToolChain {
      * @return this
      */
     RunSVUnitToolChain args(String... args);
+
+    /**
+     * Args only used when running the simulation, passed to 'runSVUnit' with '-r'. Changing them doesn't require
+     * compiling and elaborating the tests again.
+     */
+    ListProperty<String> getRuntimeArgs();
+
+    /**
+     * Configures the runtime args.
+     *
+     * @param args The arg values to append
+     * @return this
+     */
+    RunSVUnitToolChain runtimeArgs(String... args);
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright 2021-2025 the original author or authors.
+ * Copyright 2021-2026 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,9 +19,12 @@ package com.verificationgentleman.gradle.hdvl.svunit;
 import com.verificationgentleman.gradle.hdvl.AbstractGenArgsFile;
 import com.verificationgentleman.gradle.hdvl.GenFullArgsFile;
 import com.verificationgentleman.gradle.hdvl.HDVLBasePlugin;
+import com.verificationgentleman.gradle.hdvl.HDVLPluginExtension;
 import com.verificationgentleman.gradle.hdvl.SourceSet;
 import com.verificationgentleman.gradle.hdvl.internal.Names;
 import com.verificationgentleman.gradle.hdvl.svunit.internal.DefaultToolChains;
+import com.verificationgentleman.gradle.hdvl.svunit.internal.RunProgressService;
+import com.verificationgentleman.gradle.hdvl.svunit.internal.SVUnitEnvironment;
 import com.verificationgentleman.gradle.hdvl.systemverilog.SystemVerilogPlugin;
 import com.verificationgentleman.gradle.hdvl.systemverilog.SystemVerilogSourceSet;
 import org.gradle.api.Action;
@@ -31,8 +34,7 @@ import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.internal.HasConvention;
-import org.gradle.api.reflect.TypeOf;
-import org.gradle.api.specs.Specs;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.language.base.plugins.LifecycleBasePlugin;
 import org.gradle.util.GUtil;
@@ -49,18 +51,18 @@ public class SVUnitPlugin implements Plugin<Project> {
     @Override
     public void apply(Project project) {
         project.getPluginManager().apply(SystemVerilogPlugin.class);
-        NamedDomainObjectContainer<SourceSet> sourceSets = project.getExtensions()
-                .getByType(new TypeOf<NamedDomainObjectContainer<SourceSet>>() {});
+        HDVLPluginExtension extension = project.getExtensions().getByType(HDVLPluginExtension.class);
+        NamedDomainObjectContainer<SourceSet> sourceSets = extension.getSourceSets();
         final SourceSet testSourceSet = sourceSets.create("test");
 
         configureSVUnitRootConfiguration(project);
 
-        String[] toolNames = {"Xrun", "Qrun"};
-        for (String toolName: toolNames) {
-            configureArgsFilesConfiguration(project, testSourceSet, toolName);
-        }
+        extension.getTools().all(tool -> {
+            configureArgsFilesConfiguration(project, testSourceSet, tool.getCapitalizedName());
+        });
 
         configureToolChain(project);
+        configureServices(project);
 
         sourceSets.named("test", new Action<SourceSet>() {
             @Override
@@ -71,10 +73,10 @@ public class SVUnitPlugin implements Plugin<Project> {
 
                 ignoreUnitTests(svSourceSet);
 
-                String[] toolNames = {"Xrun", "Qrun"};
-                for (String toolName: toolNames) {
-                    configureTestTask(project, sourceSets.getByName("main"), sourceSet, svSourceSet, toolName);
-                }
+                extension.getTools().all(tool -> {
+                    configureTestTask(project, sourceSets.getByName("main"), sourceSet, svSourceSet,
+                            tool.getCapitalizedName());
+                });
             }
         });
     }
@@ -110,15 +112,28 @@ public class SVUnitPlugin implements Plugin<Project> {
         toolChains = project.getExtensions().create(ToolChains.class, "toolChains", DefaultToolChains.class);
     }
 
+    private void configureServices(Project project) {
+        Provider<SVUnitEnvironment> svunitEnvironment = project.getGradle().getSharedServices()
+                .registerIfAbsent("hdvlSVUnitEnvironment", SVUnitEnvironment.class, spec -> {});
+        Provider<RunProgressService> runProgress = project.getGradle().getSharedServices()
+                .registerIfAbsent("hdvlSVUnitRunProgress", RunProgressService.class, spec -> {});
+        project.getTasks().withType(TestTask.class).configureEach(task -> {
+            task.getSvunitEnvironment().set(svunitEnvironment);
+            task.usesService(svunitEnvironment);
+            task.getRunProgress().set(runProgress);
+            task.usesService(runProgress);
+        });
+    }
+
     private void ignoreUnitTests(SystemVerilogSourceSet svSourceSet) {
         svSourceSet.getSv().exclude("**/*_unit_test.sv");
     }
 
     private void configureTestTask(Project project, SourceSet mainSourceSet, SourceSet testSourceSet, SystemVerilogSourceSet testSvSourceSet, String toolName) {
-        GenFullArgsFile genFullArgsFile
-                = (GenFullArgsFile) project.getTasks().getByName(mainSourceSet.getGenFullArgsFileTaskName(toolName));
-        GenFullArgsFile genFullTestArgsFile
-                = (GenFullArgsFile) project.getTasks().getByName(testSourceSet.getGenFullArgsFileTaskName(toolName));
+        TaskProvider<GenFullArgsFile> genFullArgsFile = project.getTasks()
+                .named(mainSourceSet.getGenFullArgsFileTaskName(toolName), GenFullArgsFile.class);
+        TaskProvider<GenFullArgsFile> genFullTestArgsFile = project.getTasks()
+                .named(testSourceSet.getGenFullArgsFileTaskName(toolName), GenFullArgsFile.class);
         Configuration svUnitRoot = project.getConfigurations().getByName("svUnitRoot");
         TaskProvider<TestTask> testTask = project.getTasks().register(Names.getTestTaskName(toolName), TestTask.class, new Action<TestTask>() {
             @Override
@@ -126,22 +141,24 @@ public class SVUnitPlugin implements Plugin<Project> {
                 testTask.setGroup(LifecycleBasePlugin.VERIFICATION_GROUP);
                 testTask.setDescription("Runs the unit tests using SVUnit.");
                 testTask.getToolName().set(toolName.toLowerCase());
-                testTask.getMainArgsFile().set(genFullArgsFile.getDestination());
-                testTask.getTestArgsFile().set(genFullTestArgsFile.getDestination());
+                testTask.getMainArgsFile().set(genFullArgsFile.flatMap(GenFullArgsFile::getDestination));
+                testTask.getTestArgsFile().set(genFullTestArgsFile.flatMap(GenFullArgsFile::getDestination));
                 testTask.getTestsRoot().set(
                         project.getLayout().dir(
                                 project.provider(() -> testSvSourceSet.getSv().getSourceDirectories().getSingleFile())
                         )
                 );
                 testTask.setSvunitRoot(svUnitRoot);
-                testTask.getWorkingDir().set(project.getLayout().getBuildDirectory().dir("svunit"));
+                // Each tool gets its own working directory, so that test tasks can run in parallel
+                testTask.getWorkingDir().set(
+                        project.getLayout().getBuildDirectory().dir("svunit/" + toolName.toLowerCase()));
+                testTask.getResultsDir().set(
+                        project.getLayout().getBuildDirectory().dir("test-results/" + testTask.getName()));
                 testTask.getExtraArgs().set(toolChains.getRunSVUnit().getArgs());
-
-                // TODO Implement proper up-to-date checking
-                testTask.getOutputs().upToDateWhen(Specs.satisfyNone());
+                testTask.getRuntimeArgs().set(toolChains.getRunSVUnit().getRuntimeArgs());
             }
         });
-        project.getTasks().getByName("check").dependsOn(testTask);
+        project.getTasks().named("check").configure(check -> check.dependsOn(testTask));
     }
 
 }
@@ -16,42 +16,138 @@
 
 package com.verificationgentleman.gradle.hdvl.svunit;
 
-import org.gradle.api.Action;
+import com.verificationgentleman.gradle.hdvl.internal.ArgsFileSources;
+import com.verificationgentleman.gradle.hdvl.internal.SvDependencyGraph;
+import com.verificationgentleman.gradle.hdvl.internal.SvDependencyScanner;
+import com.verificationgentleman.gradle.hdvl.svunit.internal.RunProgressService;
+import com.verificationgentleman.gradle.hdvl.svunit.internal.RunSVUnitAction;
+import com.verificationgentleman.gradle.hdvl.svunit.internal.SVUnitEnvironment;
+import com.verificationgentleman.gradle.hdvl.svunit.internal.SVUnitLogParser;
+import com.verificationgentleman.gradle.hdvl.svunit.internal.SnapshotKey;
+import com.verificationgentleman.gradle.hdvl.svunit.internal.TestDependencies;
+import com.verificationgentleman.gradle.hdvl.svunit.internal.TestInfrastructure;
+import com.verificationgentleman.gradle.hdvl.svunit.internal.TestReports;
+import com.verificationgentleman.gradle.hdvl.svunit.internal.TestResults;
 import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.ConfigurableFileTree;
 import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileSystemOperations;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.model.ObjectFactory;
 import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.*;
-import org.gradle.process.ExecSpec;
-import org.apache.commons.text.StringEscapeUtils;
+import org.gradle.internal.logging.progress.ProgressLogger;
+import org.gradle.internal.logging.progress.ProgressLoggerFactory;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 
 import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
+/**
+ * Runs the SVUnit unit tests using a simulator.
+ *
+ * <p>The simulator runs in {@link #getWorkingDir()}, which is only scratch space. The SVUnit results and logs are
+ * copied to {@link #getResultsDir()} afterwards. The inputs cover everything the args files point to, so the tests
+ * are only run again, or restored from the build cache, if something they depend on changed.</p>
+ *
+ * <p>The unit tests can be split into {@link #getShards()} groups, which are run in parallel, each in its own
+ * 'shard-N' directory below the working directory. Their results are merged into a single 'tests.xml' and their
+ * logs are kept in a 'shard-N' directory below the results directory.</p>
+ *
+ * <p>The output of the simulator goes to a compressed log in the working directory instead of to the console, unless
+ * {@link #getPrintOutput()} is set. The tests that start and finish are shown as progress.</p>
+ */
+@CacheableTask
 public class TestTask extends DefaultTask {
 
+    /**
+     * The files 'buildSVUnit' generates next to the unit tests on every run.
+     */
+    private static final String[] SVUNIT_GENERATED_FILES = { "**/.*_testsuite.sv", "**/.testrunner.sv", "**/.svunit.f" };
+
     private RegularFileProperty mainArgsFile;
     private RegularFileProperty testArgsFile;
     private DirectoryProperty testsRoot;
     private FileCollection svunitRoot;
     private Property<String> toolName;
     private DirectoryProperty workingDir;
+    private DirectoryProperty resultsDir;
+    private ConfigurableFileCollection argsFileSources;
+    private ConfigurableFileCollection testFiles;
     private ListProperty<String> extraArgs;
+    private Property<Integer> shards;
+    private Property<Boolean> affectedTestsOnly;
+    private ListProperty<String> runtimeArgs;
+    private Property<Boolean> reuseSnapshot;
+    private final WorkerExecutor workerExecutor;
+    private final FileSystemOperations fileSystemOperations;
+    // TODO Stop using internal class, once Gradle offers a public API for progress logging
+    private final ProgressLoggerFactory progressLoggerFactory;
+    private final Property<Boolean> printOutput;
+    private final Property<SVUnitEnvironment> svunitEnvironment;
+    private final Property<RunProgressService> runProgress;
 
     @Inject
-    public TestTask(ObjectFactory objectFactory) {
+    public TestTask(ObjectFactory objectFactory, WorkerExecutor workerExecutor,
+            FileSystemOperations fileSystemOperations, ProgressLoggerFactory progressLoggerFactory) {
+        this.workerExecutor = workerExecutor;
+        this.fileSystemOperations = fileSystemOperations;
+        this.progressLoggerFactory = progressLoggerFactory;
+        printOutput = objectFactory.property(Boolean.class).convention(false);
+        svunitEnvironment = objectFactory.property(SVUnitEnvironment.class);
+        runProgress = objectFactory.property(RunProgressService.class);
         toolName = objectFactory.property(String.class);
         mainArgsFile = objectFactory.fileProperty();
         testArgsFile = objectFactory.fileProperty();
         testsRoot = objectFactory.directoryProperty();
         workingDir = objectFactory.directoryProperty();
+        resultsDir = objectFactory.directoryProperty();
+        argsFileSources = objectFactory.fileCollection()
+                .from(mainArgsFile.map(argsFile -> withoutGeneratedFiles(objectFactory, argsFile.getAsFile())))
+                .from(testArgsFile.map(argsFile -> withoutGeneratedFiles(objectFactory, argsFile.getAsFile())));
+        testFiles = objectFactory.fileCollection().from(testsRoot.map(dir -> dir.getAsFileTree().matching(files ->
+                files.exclude(SVUNIT_GENERATED_FILES))));
         extraArgs = objectFactory.listProperty(String.class);
+        shards = objectFactory.property(Integer.class).convention(1);
+        affectedTestsOnly = objectFactory.property(Boolean.class).convention(false);
+        runtimeArgs = objectFactory.listProperty(String.class);
+        reuseSnapshot = objectFactory.property(Boolean.class).convention(false);
+    }
+
+    private static List<Object> withoutGeneratedFiles(ObjectFactory objectFactory, File argsFile) {
+        List<Object> result = new ArrayList<>();
+        for (File file : ArgsFileSources.of(argsFile)) {
+            if (file.isDirectory()) {
+                ConfigurableFileTree includeDir = objectFactory.fileTree().from(file);
+                includeDir.exclude(SVUNIT_GENERATED_FILES);
+                result.add(includeDir);
+            } else {
+                result.add(file);
+            }
+        }
+        return result;
     }
 
     @Input
@@ -60,21 +156,54 @@ public class TestTask extends DefaultTask {
     }
 
     @InputFile
+    @PathSensitive(PathSensitivity.RELATIVE)
     public RegularFileProperty getMainArgsFile() {
         return mainArgsFile;
     }
 
     @InputFile
+    @PathSensitive(PathSensitivity.RELATIVE)
     public RegularFileProperty getTestArgsFile() {
         return testArgsFile;
     }
 
-    @InputDirectory
+    /**
+     * The source files and include directories the args files point to. Their locations are already part of the args
+     * files. The tests root is usually one of the include directories, so the files generated by SVUnit are left out
+     * of all of them.
+     */
+    @InputFiles
+    @Incremental
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getArgsFileSources() {
+        return argsFileSources;
+    }
+
+    /**
+     * The directory containing the unit tests. 'buildSVUnit' writes the testsuites it generates into it, so only
+     * {@link #getTestFiles()} are tracked.
+     */
+    @Internal
     public DirectoryProperty getTestsRoot() {
         return testsRoot;
     }
 
+    /**
+     * The files below the tests root, i.e. the unit tests, the 'svunit.f' files next to them and other hand-written
+     * sources, without the files generated by SVUnit.
+     */
     @InputFiles
+    @Incremental
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileCollection getTestFiles() {
+        return testFiles;
+    }
+
+    /**
+     * The SVUnit installation. Its contents stand for the SVUnit version.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
     public FileCollection getSvunitRoot() {
         return svunitRoot;
     }
@@ -83,55 +212,347 @@ public class TestTask extends DefaultTask {
         this.svunitRoot = svunitRoot;
     }
 
-    @OutputDirectory
+    /**
+     * Provides the environment set up by the SVUnit installation's 'Setup.bsh'.
+     */
+    @Internal
+    public Property<SVUnitEnvironment> getSvunitEnvironment() {
+        return svunitEnvironment;
+    }
+
+    /**
+     * Passes the tests that start and finish from the SVUnit runs back to this task, to show them as progress.
+     */
+    @Internal
+    public Property<RunProgressService> getRunProgress() {
+        return runProgress;
+    }
+
+    @LocalState
     public DirectoryProperty getWorkingDir() {
         return workingDir;
     }
 
+    /**
+     * Where the test results ('tests.xml') and the logs of the run are copied to. The results of the individual
+     * tests, as parsed from the output of the run, are written to a JUnit XML report per SVUnit test case, in
+     * 'junit', and to 'timings.json', together with their durations.
+     */
+    @OutputDirectory
+    public DirectoryProperty getResultsDir() {
+        return resultsDir;
+    }
+
     @Input
     public ListProperty<String> getExtraArgs() {
         return extraArgs;
     }
 
+    /**
+     * Args only used when running the simulation.
+     *
+     * @see RunSVUnitToolChain#getRuntimeArgs()
+     */
+    @Input
+    public ListProperty<String> getRuntimeArgs() {
+        return runtimeArgs;
+    }
+
+    /**
+     * Whether to reuse the simulator snapshot compiled and elaborated by the previous run, by only running the
+     * simulation, when the args files, the files they point to, the tests and the compile args didn't change. This
+     * is supported for xrun and qrun. The tests that run are part of the snapshot, so changing which tests run
+     * requires a new snapshot.
+     */
+    @Input
+    public Property<Boolean> getReuseSnapshot() {
+        return reuseSnapshot;
+    }
+
+    /**
+     * Whether to print the output of the simulator to the console. It is always written to a compressed log in the
+     * working directory, and the tests that start and finish are shown as progress.
+     */
+    @Console
+    public Property<Boolean> getPrintOutput() {
+        return printOutput;
+    }
+
+    /**
+     * The number of groups to split the unit tests into, to run them in parallel. The number of groups that run at
+     * the same time is bounded by the maximum number of Gradle workers.
+     */
+    @Input
+    public Property<Integer> getShards() {
+        return shards;
+    }
+
+    /**
+     * Whether to only run the unit tests affected by the files that changed since the previous run. A unit test is
+     * affected if it transitively depends on a changed file, through {@code `include} directives or references to
+     * packages. All unit tests are run if anything else changed, e.g. the args files or the args for 'runSVUnit'.
+     */
+    @Input
+    public Property<Boolean> getAffectedTestsOnly() {
+        return affectedTestsOnly;
+    }
+
     @TaskAction
-    protected void run() {
-        createLinkToTests();
-        runTests();
+    protected void run(InputChanges inputChanges) throws IOException {
+        // Keeps other builds from running tests in the same working directory at the same time
+        Files.createDirectories(workingDir.get().getAsFile().toPath());
+        Path lockFile = workingDir.file(".lock").get().getAsFile().toPath();
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            runTests(inputChanges);
+        }
     }
 
-    private void createLinkToTests() {
+    private void runTests(InputChanges inputChanges) throws IOException {
+        List<String> tests = findUnitTests();
+        boolean allTests = true;
+        File dependenciesFile = workingDir.file("test-dependencies").get().getAsFile();
+        TestDependencies dependencies = null;
+        if (affectedTestsOnly.get()) {
+            TestDependencies previousDependencies = inputChanges.isIncremental()
+                    ? TestDependencies.load(dependenciesFile)
+                    : null;
+            // Only saved again once all tests passed, so that failing tests run again next time
+            Files.deleteIfExists(dependenciesFile.toPath());
+            dependencies = getTestDependencies(tests);
+            if (previousDependencies != null) {
+                Set<File> changedFiles = getChangedFiles(inputChanges);
+                Set<String> affectedTests = previousDependencies.getAffectedTests(changedFiles);
+                affectedTests.addAll(dependencies.getAffectedTests(changedFiles));
+                tests = tests.stream().filter(affectedTests::contains).collect(Collectors.toList());
+                allTests = false;
+                if (tests.isEmpty()) {
+                    getLogger().lifecycle("No unit tests are affected by the changes.");
+                    dependencies.save(dependenciesFile);
+                    return;
+                }
+                getLogger().info("Running the unit tests affected by the changes: " + tests);
+            }
+        }
+
+        // Results of tests that don't run again are kept
+        if (allTests)
+            fileSystemOperations.delete(spec -> spec.delete(resultsDir));
+        Files.createDirectories(resultsDir.get().getAsFile().toPath());
+
+        String snapshotKey = reuseSnapshot.get() ? getSnapshotKey() : null;
+        long sourcesLastModified = reuseSnapshot.get() ? getSourcesLastModified(inputChanges) : 0;
+        String progressId = UUID.randomUUID().toString();
+        TestProgress progress = new TestProgress(
+                progressLoggerFactory.newOperation(TestTask.class).start("Running unit tests", "Running unit tests"));
+        WorkQueue workQueue = workerExecutor.noIsolation();
+        List<List<String>> shardedTests = shardTests(tests);
+        List<File> runDirs = new ArrayList<>();
+        runProgress.get().register(progressId, progress);
         try {
-            File testsLink = new File(workingDir.get().getAsFile(), "tests");
-            Files.deleteIfExists(testsLink.toPath());
-            Files.createSymbolicLink(testsLink.toPath(), testsRoot.get().getAsFile().toPath());
-        } catch (IOException e) {
-            throw new RuntimeException("Could not create 'tests' link.\n\n" + e.toString());
+            if (shardedTests.isEmpty()) {
+                runDirs.add(workingDir.get().getAsFile());
+                submit(workQueue, workingDir.get().getAsFile(), allTests ? Collections.emptyList() : tests,
+                        snapshotKey, sourcesLastModified, progressId);
+            }
+            for (int i = 0; i < shardedTests.size(); i++) {
+                File shardDir = new File(workingDir.get().getAsFile(), "shard-" + (i + 1));
+                runDirs.add(shardDir);
+                submit(workQueue, shardDir, shardedTests.get(i), snapshotKey, sourcesLastModified, progressId);
+            }
+            workQueue.await();
+        } finally {
+            runProgress.get().unregister(progressId);
+            progress.completed();
         }
 
-    }
+        List<File> timingFiles = new ArrayList<>();
+        for (File runDir : runDirs)
+            timingFiles.add(new File(runDir, "timings.json"));
+        File timings = resultsDir.file("timings.json").get().getAsFile();
+        TestReports.mergeTimings(timingFiles, timings, !allTests);
+        if (dependencies != null && TestReports.allPassed(timings))
+            dependencies.save(dependenciesFile);
 
-    private void runTests() {
-        getProject().exec(new Action<ExecSpec>() {
-            @Override
-            public void execute(ExecSpec execSpec) {
-                execSpec.executable("bash");
-                String sourceCommands = String.join("; ",
-                        "cd " + svunitRoot.getSingleFile(),
-                        "source Setup.bsh",
-                        "cd -");
-                String runSVUnitCommand = String.join(" ",
-                        "runSVUnit",
-                        "--sim", toolName.get(),
-                        "-f", mainArgsFile.getAsFile().get().getAbsolutePath(),
-                        "-f", testArgsFile.getAsFile().get().getAbsolutePath(),
-                        extraArgs.get().stream()
-                            .map(StringEscapeUtils::escapeXSI)
-                            .collect(Collectors.joining(" ")));
-                String cArg = String.join("; ", sourceCommands, runSVUnitCommand);
-                execSpec.args("-c", cArg);
-                execSpec.workingDir(workingDir.get().getAsFile());
+        File testResults = resultsDir.file("tests.xml").get().getAsFile();
+        if (shardedTests.isEmpty()) {
+            File dir = workingDir.get().getAsFile();
+            if (allTests) {
+                copyResults(dir, resultsDir.get().getAsFile(), "{tests.xml,*.log}");
+                return;
             }
+            // Like the timings, the previous results of the tests that didn't run again are kept
+            TestResults.merge(Collections.singletonList(new File(dir, "tests.xml")), testResults, true);
+            copyResults(dir, resultsDir.get().getAsFile(), "*.log");
+            return;
+        }
+
+        List<File> reports = new ArrayList<>();
+        for (File shardDir : runDirs) {
+            copyResults(shardDir, new File(resultsDir.get().getAsFile(), shardDir.getName()), "{tests.xml,*.log}");
+            reports.add(new File(shardDir, "tests.xml"));
+        }
+        TestResults.merge(reports, testResults, !allTests);
+    }
+
+    /**
+     * Returns the paths of the unit tests, relative to the tests root.
+     */
+    private List<String> findUnitTests() throws IOException {
+        return TestInfrastructure.findUnitTests(testsRoot.get().getAsFile());
+    }
+
+    private TestDependencies getTestDependencies(List<String> tests) throws IOException {
+        List<File> sources = new ArrayList<>();
+        List<File> includeDirs = new ArrayList<>();
+        List<File> entries = new ArrayList<>(ArgsFileSources.of(mainArgsFile.get().getAsFile()));
+        entries.addAll(ArgsFileSources.of(testArgsFile.get().getAsFile()));
+        for (File file : entries) {
+            if (file.isDirectory())
+                includeDirs.add(file);
+            else if (isSystemVerilogFile(file))
+                sources.add(file);
+        }
+
+        SvDependencyScanner scanner = new SvDependencyScanner(workingDir.file("sv-dependencies").get().getAsFile());
+        SvDependencyGraph graph = new SvDependencyGraph(scanner, sources, includeDirs);
+        TestDependencies result = new TestDependencies();
+        for (String test : tests)
+            result.put(test, graph.getDependencies(new File(testsRoot.get().getAsFile(), test)));
+        scanner.save();
+        return result;
+    }
+
+    private static boolean isSystemVerilogFile(File file) {
+        String name = file.getName();
+        return name.endsWith(".sv") || name.endsWith(".svh") || name.endsWith(".v") || name.endsWith(".vh");
+    }
+
+    private Set<File> getChangedFiles(InputChanges inputChanges) {
+        Set<File> result = new HashSet<>();
+        for (FileChange change : inputChanges.getFileChanges(argsFileSources))
+            result.add(change.getFile().getAbsoluteFile());
+        for (FileChange change : inputChanges.getFileChanges(testFiles))
+            result.add(change.getFile().getAbsoluteFile());
+        return result;
+    }
+
+    /**
+     * Splits the unit tests into groups, as evenly as possible. Returns no groups if the tests aren't sharded.
+     */
+    private List<List<String>> shardTests(List<String> tests) {
+        List<List<String>> result = new ArrayList<>();
+        if (shards.get() <= 1)
+            return result;
+
+        int numShards = Math.min(shards.get(), tests.size());
+        for (int i = 0; i < numShards; i++)
+            result.add(new ArrayList<>());
+        for (int i = 0; i < tests.size(); i++)
+            result.get(i % numShards).add(tests.get(i));
+        return result;
+    }
+
+    /**
+     * Hashes the args files and the args that affect compilation and elaboration. The tests, which can differ between
+     * shards, are added per run. Changes to the files the args files point to are checked separately, using
+     * {@link #getSourcesLastModified(InputChanges)}.
+     */
+    private String getSnapshotKey() throws IOException {
+        return new SnapshotKey()
+                .add(toolName.get())
+                .add(svunitRoot.getSingleFile().getAbsolutePath())
+                .add(extraArgs.get())
+                .addFile(mainArgsFile.get().getAsFile())
+                .addFile(testArgsFile.get().getAsFile())
+                .get();
+    }
+
+    /**
+     * Returns when the files the args files point to, or the tests, were last changed, which decides whether a
+     * snapshot built for the same args files is still up to date.
+     */
+    private long getSourcesLastModified(InputChanges inputChanges) {
+        if (inputChanges.isIncremental())
+            return getChangedFiles(inputChanges).isEmpty() ? 0 : Long.MAX_VALUE;
+
+        // Gradle doesn't say which files changed, e.g. because the runtime args changed, so only the timestamps are
+        // checked
+        long result = 0;
+        for (File file : argsFileSources)
+            result = Math.max(result, file.lastModified());
+        for (File file : testFiles)
+            result = Math.max(result, file.lastModified());
+        return result;
+    }
+
+    private void submit(WorkQueue workQueue, File dir, List<String> tests, String snapshotKey, long sourcesLastModified,
+            String progressId) {
+        workQueue.submit(RunSVUnitAction.class, parameters -> {
+            parameters.getSvunitRoot().from(svunitRoot);
+            parameters.getToolName().set(toolName);
+            parameters.getMainArgsFile().set(mainArgsFile);
+            parameters.getTestArgsFile().set(testArgsFile);
+            parameters.getTestsRoot().set(testsRoot);
+            parameters.getWorkingDir().set(dir);
+            parameters.getTests().set(tests);
+            parameters.getExtraArgs().set(extraArgs);
+            parameters.getSvunitEnvironment().set(svunitEnvironment);
+            parameters.getRuntimeArgs().set(runtimeArgs);
+            if (snapshotKey != null)
+                parameters.getSnapshotKey().set(new SnapshotKey().add(snapshotKey).add(tests).get());
+            parameters.getSourcesLastModified().set(sourcesLastModified);
+            parameters.getJUnitReportsDir().set(resultsDir.dir("junit"));
+            parameters.getTimingsFile().set(new File(dir, "timings.json"));
+            parameters.getPrintOutput().set(printOutput);
+            parameters.getRunProgress().set(runProgress);
+            parameters.getProgressId().set(progressId);
         });
     }
 
+    private static void copyResults(File dir, File destination, String glob) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir.toPath(), glob)) {
+            Files.createDirectories(destination.toPath());
+            for (Path file : files)
+                Files.copy(file, destination.toPath().resolve(file.getFileName()),
+                        StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not copy test results.\n\n" + e.toString());
+        }
+    }
+
+    /**
+     * Shows how many tests finished, for all runs together.
+     */
+    private static class TestProgress implements SVUnitLogParser.Listener {
+        private final ProgressLogger progressLogger;
+        private int passed;
+        private int failed;
+
+        TestProgress(ProgressLogger progressLogger) {
+            this.progressLogger = progressLogger;
+        }
+
+        @Override
+        public synchronized void started(String testCase, String test) {
+            progressLogger.progress(getStatus() + ", running " + testCase + "." + test);
+        }
+
+        @Override
+        public synchronized void finished(SVUnitLogParser.TestResult result) {
+            if (result.getResult().equals("FAILED"))
+                failed++;
+            else
+                passed++;
+            progressLogger.progress(getStatus());
+        }
+
+        private String getStatus() {
+            return passed + " passed, " + failed + " failed";
+        }
+
+        synchronized void completed() {
+            progressLogger.completed(getStatus(), failed > 0);
+        }
+    }
 }
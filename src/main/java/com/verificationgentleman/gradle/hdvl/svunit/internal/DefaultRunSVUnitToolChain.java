@@ -10,10 +10,12 @@ import java.util.List;
 
 public class DefaultRunSVUnitToolChain implements RunSVUnitToolChain {
     private ListProperty<String> args;
+    private ListProperty<String> runtimeArgs;
 
     @Inject
     public DefaultRunSVUnitToolChain(ObjectFactory objects) {
         args = objects.listProperty(String.class);
+        runtimeArgs = objects.listProperty(String.class);
     }
 
     @Override
@@ -38,4 +40,17 @@ public class DefaultRunSVUnitToolChain implements RunSVUnitToolChain {
         }
         return this;
     }
+
+    @Override
+    public ListProperty<String> getRuntimeArgs() {
+        return runtimeArgs;
+    }
+
+    @Override
+    public RunSVUnitToolChain runtimeArgs(String... args) {
+        for (String arg : args) {
+            this.runtimeArgs.add(arg);
+        }
+        return this;
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.svunit.internal;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Hands output to a consumer line by line, as it is written.
+ *
+ * <p>Only the first {@link #MAX_LINE_LENGTH} bytes of each line are handed over, so memory use doesn't depend on the
+ * size of the output. A line that is cut short ends before the UTF-8 character that didn't fit completely. This is
+ * meant for parsing and showing the output; the output itself has to be kept elsewhere.</p>
+ */
+public class LineSplittingOutputStream extends OutputStream {
+    static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    private final Consumer<String> lineConsumer;
+    private final byte[] line = new byte[MAX_LINE_LENGTH];
+    private int lineLength;
+
+    public LineSplittingOutputStream(Consumer<String> lineConsumer) {
+        this.lineConsumer = lineConsumer;
+    }
+
+    @Override
+    public void write(int b) {
+        append((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        for (int i = off; i < off + len; i++)
+            append(b[i]);
+    }
+
+    private void append(byte b) {
+        if (b == '\n') {
+            endLine();
+        } else if (lineLength < line.length) {
+            line[lineLength++] = b;
+        }
+    }
+
+    private void endLine() {
+        int length = lineLength == line.length ? getCompleteLength(line, lineLength) : lineLength;
+        if (length > 0 && line[length - 1] == '\r')
+            length--;
+        lineConsumer.accept(new String(line, 0, length, StandardCharsets.UTF_8));
+        lineLength = 0;
+    }
+
+    /**
+     * Returns the length of the bytes without a trailing UTF-8 character whose continuation bytes are missing.
+     */
+    static int getCompleteLength(byte[] bytes, int length) {
+        int start = length - 1;
+        while (start >= 0 && start > length - 4 && (bytes[start] & 0xC0) == 0x80)
+            start--;
+        if (start < 0)
+            return length;
+        int lead = bytes[start] & 0xFF;
+        int expected = lead < 0x80 ? 1 : lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+        return start + expected > length ? start : length;
+    }
+
+    /**
+     * Hands over the last line, if it wasn't terminated.
+     */
+    @Override
+    public void close() {
+        if (lineLength > 0)
+            endLine();
+    }
+}
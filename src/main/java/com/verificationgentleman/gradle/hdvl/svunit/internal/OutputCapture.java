@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.svunit.internal;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Collects the output of a process, from both stdout and stderr.
+ *
+ * <p>The output is written as is to a compressed log file. It is also split into lines, of which only the last
+ * {@link #TAIL_LINES} are kept in memory, to be shown when the process fails.</p>
+ */
+public class OutputCapture implements Closeable {
+    private static final Logger LOGGER = Logging.getLogger(OutputCapture.class);
+
+    static final int TAIL_LINES = 50;
+
+    private final OutputStream log;
+    private final boolean printToConsole;
+    private final Deque<String> tail = new ArrayDeque<>(TAIL_LINES);
+
+    /**
+     * @param printToConsole whether to also log lines at lifecycle level
+     */
+    public OutputCapture(File logFile, boolean printToConsole) throws IOException {
+        this.log = new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(logFile.toPath())));
+        this.printToConsole = printToConsole;
+    }
+
+    /**
+     * Returns a stream to pass one of the outputs of the process to. Closing it hands over the last line, if it
+     * wasn't terminated, but leaves the log open.
+     *
+     * @param lineConsumer also gets each line of this output
+     */
+    public OutputStream newStream(Consumer<String> lineConsumer) {
+        return new CapturedStream(new LineSplittingOutputStream(line -> {
+            addLine(line);
+            lineConsumer.accept(line);
+        }));
+    }
+
+    private synchronized void write(byte[] b, int off, int len) throws IOException {
+        log.write(b, off, len);
+    }
+
+    private synchronized void addLine(String line) {
+        if (tail.size() == TAIL_LINES)
+            tail.removeFirst();
+        tail.addLast(line);
+        if (printToConsole)
+            LOGGER.lifecycle(line);
+    }
+
+    public synchronized List<String> getTail() {
+        return new ArrayList<>(tail);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        log.close();
+    }
+
+    private class CapturedStream extends OutputStream {
+        private final LineSplittingOutputStream lines;
+
+        CapturedStream(LineSplittingOutputStream lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            OutputCapture.this.write(b, off, len);
+            lines.write(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            lines.close();
+        }
+    }
+}
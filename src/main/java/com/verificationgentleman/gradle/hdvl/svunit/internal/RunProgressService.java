@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.svunit.internal;
+
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands the progress of SVUnit runs back to the task that submitted them, which keeps the listener for the duration
+ * of its run. The service is shared by the task and the {@link RunSVUnitAction}s it submits.
+ */
+public abstract class RunProgressService implements BuildService<BuildServiceParameters.None> {
+    private final Map<String, SVUnitLogParser.Listener> listeners = new ConcurrentHashMap<>();
+
+    public void register(String runId, SVUnitLogParser.Listener listener) {
+        listeners.put(runId, listener);
+    }
+
+    public void unregister(String runId) {
+        listeners.remove(runId);
+    }
+
+    /**
+     * @return the listener for a run, or {@code null} if none was registered
+     */
+    SVUnitLogParser.Listener get(String runId) {
+        return listeners.get(runId);
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.svunit.internal;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.process.ExecOperations;
+import org.gradle.process.ExecResult;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs 'runSVUnit' in a working directory, for all unit tests or for a subset of them.
+ *
+ * <p>If a snapshot key is given, the simulator snapshot left in the working directory by the previous run is reused
+ * when it was built for the same key, by only running the simulation. This is only supported for the simulators in
+ * {@link #SIMULATE_COMMANDS}. The 'tests.xml' report is then written from the output of the simulation.</p>
+ *
+ * <p>The output of the run is written to a compressed log, {@link #OUTPUT_LOG}, in the working directory, instead of
+ * to the console. Only its last lines are kept in memory, to be shown if the run fails.</p>
+ */
+public abstract class RunSVUnitAction implements WorkAction<RunSVUnitAction.Parameters> {
+    public static final String OUTPUT_LOG = "output.log.gz";
+    private static final String SNAPSHOT_KEY_FILE = ".hdvl-snapshot-key";
+    private static final Map<String, List<String>> SIMULATE_COMMANDS = new HashMap<>();
+    private static final Map<String, String> SNAPSHOT_DIRS = new HashMap<>();
+
+    static {
+        SIMULATE_COMMANDS.put("xrun", Arrays.asList("xrun", "-R", "-l", "run.log"));
+        SNAPSHOT_DIRS.put("xrun", "xcelium.d");
+        SIMULATE_COMMANDS.put("qrun", Arrays.asList("qrun", "-simulate", "-l", "run.log"));
+        SNAPSHOT_DIRS.put("qrun", "qrun.out");
+    }
+
+    public interface Parameters extends WorkParameters {
+        ConfigurableFileCollection getSvunitRoot();
+
+        Property<String> getToolName();
+
+        RegularFileProperty getMainArgsFile();
+
+        RegularFileProperty getTestArgsFile();
+
+        DirectoryProperty getTestsRoot();
+
+        DirectoryProperty getWorkingDir();
+
+        /**
+         * The unit tests to run, relative to the tests root. All unit tests are run if empty.
+         */
+        ListProperty<String> getTests();
+
+        ListProperty<String> getExtraArgs();
+
+        Property<SVUnitEnvironment> getSvunitEnvironment();
+
+        ListProperty<String> getRuntimeArgs();
+
+        /**
+         * Identifies what the snapshot has to be built from. Snapshots are not reused if absent.
+         */
+        Property<String> getSnapshotKey();
+
+        /**
+         * When the files the args files point to were last changed. A snapshot is only reused if it was built after
+         * that, as the key only covers the args files themselves.
+         */
+        Property<Long> getSourcesLastModified();
+
+        /**
+         * Where to write a JUnit XML report for each SVUnit test case that ran.
+         */
+        DirectoryProperty getJUnitReportsDir();
+
+        RegularFileProperty getTimingsFile();
+
+        /**
+         * Whether to also print the output to the console.
+         */
+        Property<Boolean> getPrintOutput();
+
+        Property<RunProgressService> getRunProgress();
+
+        /**
+         * Identifies the listener registered with {@link #getRunProgress()} to notify as tests start and finish.
+         */
+        Property<String> getProgressId();
+    }
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @Override
+    public void execute() {
+        createLinkToTests();
+        runTests();
+    }
+
+    private void createLinkToTests() {
+        try {
+            File testsLink = new File(getParameters().getWorkingDir().get().getAsFile(), "tests");
+            Files.createDirectories(testsLink.getParentFile().toPath());
+            Files.deleteIfExists(testsLink.toPath());
+            Files.createSymbolicLink(testsLink.toPath(), getParameters().getTestsRoot().get().getAsFile().toPath());
+        } catch (IOException e) {
+            throw new RuntimeException("Could not create 'tests' link.\n\n" + e.toString());
+        }
+
+    }
+
+    private void runTests() {
+        Parameters parameters = getParameters();
+        File workingDir = parameters.getWorkingDir().get().getAsFile();
+        File snapshotKeyFile = new File(workingDir, SNAPSHOT_KEY_FILE);
+        SVUnitLogParser parser = new SVUnitLogParser(
+                parameters.getProgressId().isPresent()
+                        ? parameters.getRunProgress().get().get(parameters.getProgressId().get())
+                        : null);
+        File outputLog = new File(workingDir, OUTPUT_LOG);
+        File testResults = new File(workingDir, "tests.xml");
+        ExecResult result;
+        List<String> tail;
+        boolean reuseSnapshot;
+        try {
+            reuseSnapshot = canReuseSnapshot(snapshotKeyFile);
+            // The time of the key is when the snapshot was built, so files changed since then are newer than it
+            long snapshotTime = reuseSnapshot ? snapshotKeyFile.lastModified() : System.currentTimeMillis();
+            Files.deleteIfExists(snapshotKeyFile.toPath());
+            // Only 'runSVUnit' writes this report, so it's written from the output when reusing the snapshot
+            if (reuseSnapshot)
+                Files.deleteIfExists(testResults.toPath());
+            try (OutputCapture output = new OutputCapture(outputLog, parameters.getPrintOutput().get())) {
+                OutputStream standardOutput = output.newStream(parser::parse);
+                OutputStream errorOutput = output.newStream(line -> {});
+                result = exec(reuseSnapshot ? getSimulateCommand() : getRunSVUnitCommand(), standardOutput,
+                        errorOutput);
+                standardOutput.close();
+                errorOutput.close();
+                tail = output.getTail();
+            }
+            if (result.getExitValue() == 0 && parameters.getSnapshotKey().isPresent()) {
+                Files.write(snapshotKeyFile.toPath(),
+                        parameters.getSnapshotKey().get().getBytes(StandardCharsets.UTF_8));
+                snapshotKeyFile.setLastModified(snapshotTime);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            TestReports.writeJUnitReports(parser, parameters.getJUnitReportsDir().get().getAsFile());
+            TestReports.writeTimings(parser, parameters.getTimingsFile().get().getAsFile());
+            if (reuseSnapshot)
+                TestReports.writeTestResults(parser, testResults);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write test reports.\n\n" + e.toString());
+        }
+        if (result.getExitValue() != 0)
+            throw new RuntimeException("SVUnit run failed with exit value " + result.getExitValue()
+                    + ". Last lines of output:\n\n" + String.join("\n", tail)
+                    + "\n\nThe full output is in " + outputLog + ".");
+    }
+
+    private boolean canReuseSnapshot(File snapshotKeyFile) throws IOException {
+        Parameters parameters = getParameters();
+        String snapshotDir = SNAPSHOT_DIRS.get(parameters.getToolName().get());
+        if (!parameters.getSnapshotKey().isPresent() || snapshotDir == null)
+            return false;
+        if (!snapshotKeyFile.isFile() || !new File(parameters.getWorkingDir().get().getAsFile(), snapshotDir).exists())
+            return false;
+        if (snapshotKeyFile.lastModified() <= parameters.getSourcesLastModified().getOrElse(0L))
+            return false;
+        String previousKey = new String(Files.readAllBytes(snapshotKeyFile.toPath()), StandardCharsets.UTF_8);
+        return previousKey.equals(parameters.getSnapshotKey().get());
+    }
+
+    private List<String> getRunSVUnitCommand() {
+        Parameters parameters = getParameters();
+        List<String> command = new ArrayList<>(Arrays.asList(
+                "runSVUnit",
+                "--sim", parameters.getToolName().get(),
+                "-f", parameters.getMainArgsFile().getAsFile().get().getAbsolutePath(),
+                "-f", parameters.getTestArgsFile().getAsFile().get().getAbsolutePath()));
+        for (String test : parameters.getTests().get()) {
+            command.add("-t");
+            command.add("tests/" + test);
+        }
+        command.addAll(parameters.getExtraArgs().get());
+        for (String arg : parameters.getRuntimeArgs().get()) {
+            command.add("-r");
+            command.add(arg);
+        }
+        return command;
+    }
+
+    private List<String> getSimulateCommand() {
+        Parameters parameters = getParameters();
+        List<String> command = new ArrayList<>(SIMULATE_COMMANDS.get(parameters.getToolName().get()));
+        command.addAll(parameters.getRuntimeArgs().get());
+        return command;
+    }
+
+    private ExecResult exec(List<String> command, OutputStream standardOutput, OutputStream errorOutput) {
+        Parameters parameters = getParameters();
+        Map<String, String> environment = parameters.getSvunitEnvironment().get()
+                .getEnvironment(parameters.getSvunitRoot().getSingleFile());
+        return getExecOperations().exec(execSpec -> {
+            execSpec.setEnvironment(environment);
+            execSpec.executable(SVUnitEnvironment.findExecutable(command.get(0), environment));
+            execSpec.args(command.subList(1, command.size()));
+            execSpec.workingDir(parameters.getWorkingDir().get().getAsFile());
+            execSpec.setStandardOutput(standardOutput);
+            execSpec.setErrorOutput(errorOutput);
+            execSpec.setIgnoreExitValue(true);
+        });
+    }
+}
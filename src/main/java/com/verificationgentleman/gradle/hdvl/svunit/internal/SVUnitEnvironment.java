@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.svunit.internal;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.process.ExecOperations;
+
+import javax.inject.Inject;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the environment set up by the 'Setup.bsh' script of each SVUnit installation for the duration of a build.
+ *
+ * <p>The script is only sourced once per installation and per version of the script, instead of once for each call to
+ * an SVUnit executable. The executables are then started directly, with the captured environment.</p>
+ */
+public abstract class SVUnitEnvironment implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+    private static final Logger LOGGER = Logging.getLogger(SVUnitEnvironment.class);
+
+    // Variables that only describe the shell that sourced the script
+    private static final Set<String> SHELL_VARIABLES = new HashSet<>(Arrays.asList("_", "PWD", "OLDPWD", "SHLVL"));
+
+    private final Map<String, Map<String, String>> environments = new ConcurrentHashMap<>();
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    /**
+     * Returns the environment to run SVUnit executables from the given installation with.
+     */
+    public Map<String, String> getEnvironment(File svunitRoot) {
+        String key = svunitRoot.getAbsolutePath() + ":" + hash(new File(svunitRoot, "Setup.bsh"));
+        return environments.computeIfAbsent(key, k -> capture(svunitRoot));
+    }
+
+    private Map<String, String> capture(File svunitRoot) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        getExecOperations().exec(execSpec -> {
+            execSpec.executable("bash");
+            execSpec.args("-c", "source Setup.bsh > /dev/null; env -0");
+            execSpec.workingDir(svunitRoot);
+            execSpec.setStandardOutput(output);
+        });
+
+        Map<String, String> result = new HashMap<>();
+        for (String entry : new String(output.toByteArray(), StandardCharsets.UTF_8).split("\0")) {
+            int separator = entry.indexOf('=');
+            if (separator <= 0)
+                continue;
+            String name = entry.substring(0, separator);
+            if (!SHELL_VARIABLES.contains(name))
+                result.put(name, entry.substring(separator + 1));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static String hash(File file) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file.toPath()));
+            StringBuilder result = new StringBuilder();
+            for (byte b : digest)
+                result.append(String.format("%02x", b));
+            return result.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read " + file, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the absolute path of an executable, looked up in the 'PATH' of the given environment. The process
+     * starting the executable would otherwise look it up in its own 'PATH'.
+     */
+    public static String findExecutable(String name, Map<String, String> environment) {
+        String path = environment.get("PATH");
+        if (path != null)
+            for (String dir : path.split(File.pathSeparator)) {
+                File candidate = new File(dir, name);
+                if (candidate.isFile() && candidate.canExecute())
+                    return candidate.getAbsolutePath();
+            }
+        return name;
+    }
+
+    @Override
+    public void close() {
+        LOGGER.info("HDVL SVUnit environment: sourced 'Setup.bsh' for {} installations", environments.size());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.svunit.internal;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts the results of individual tests from SVUnit output, one line at a time.
+ *
+ * <p>SVUnit reports each test with lines like {@code INFO:  [0][foo_ut]: some_test::RUNNING}, followed by
+ * {@code ...::PASSED} or {@code ...::FAILED}, with the messages of failed checks in between. Only the results and
+ * a limited number of messages per test are kept, not the output itself. The duration of a test is measured from
+ * the time its lines are received.</p>
+ */
+public class SVUnitLogParser {
+    private static final Pattern MESSAGE = Pattern.compile("^(INFO|WARNING|ERROR|FATAL):\\s*\\[([^\\]]*)\\]\\[([^\\]]+)\\]:\\s*(.*)$");
+    private static final Pattern STATUS = Pattern.compile("^(\\w+)::(RUNNING|PASSED|FAILED|DISABLED)\\b.*$");
+    private static final int MAX_MESSAGES = 10;
+
+    private final List<TestResult> results = new ArrayList<>();
+    private final Map<String, TestResult> running = new HashMap<>();
+    private final Listener listener;
+
+    /**
+     * Notified as tests start and finish.
+     */
+    public interface Listener {
+        void started(String testCase, String test);
+
+        void finished(TestResult result);
+    }
+
+    public SVUnitLogParser() {
+        this(null);
+    }
+
+    public SVUnitLogParser(Listener listener) {
+        this.listener = listener;
+    }
+
+    public static class TestResult {
+        private final String testCase;
+        private final String name;
+        private final String startTime;
+        private final long startNanos;
+        private final List<String> messages = new ArrayList<>();
+        private String result;
+        private String endTime;
+        private long durationMillis;
+
+        TestResult(String testCase, String name, String startTime, long startNanos) {
+            this.testCase = testCase;
+            this.name = name;
+            this.startTime = startTime;
+            this.startNanos = startNanos;
+        }
+
+        public String getTestCase() {
+            return testCase;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * One of 'PASSED', 'FAILED' or 'DISABLED'.
+         */
+        public String getResult() {
+            return result;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /**
+         * The simulation time at which the test started, as printed by SVUnit.
+         */
+        public String getSimulationStartTime() {
+            return startTime;
+        }
+
+        public String getSimulationEndTime() {
+            return endTime;
+        }
+
+        /**
+         * The error messages printed while the test was running, up to a limit.
+         */
+        public List<String> getMessages() {
+            return messages;
+        }
+    }
+
+    public void parse(String line) {
+        parse(line, System.nanoTime());
+    }
+
+    void parse(String line, long nanos) {
+        Matcher message = MESSAGE.matcher(line.trim());
+        if (!message.matches())
+            return;
+        String severity = message.group(1);
+        String time = message.group(2);
+        String testCase = message.group(3);
+        String text = message.group(4);
+
+        Matcher status = STATUS.matcher(text);
+        if (!status.matches()) {
+            TestResult current = running.get(testCase);
+            if (current != null && !severity.equals("INFO") && current.messages.size() < MAX_MESSAGES)
+                current.messages.add(severity + ": " + text);
+            return;
+        }
+
+        String name = status.group(1);
+        String state = status.group(2);
+        if (state.equals("RUNNING")) {
+            running.put(testCase, new TestResult(testCase, name, time, nanos));
+            if (listener != null)
+                listener.started(testCase, name);
+            return;
+        }
+
+        TestResult result = running.remove(testCase);
+        if (result == null || !result.name.equals(name))
+            result = new TestResult(testCase, name, time, nanos);
+        result.result = state;
+        result.endTime = time;
+        result.durationMillis = (nanos - result.startNanos) / 1_000_000;
+        results.add(result);
+        if (listener != null)
+            listener.finished(result);
+    }
+
+    /**
+     * Returns the finished tests, in the order in which they finished.
+     */
+    public List<TestResult> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Returns the tests that started but didn't finish, e.g. because the simulator crashed.
+     */
+    public Collection<TestResult> getUnfinished() {
+        return Collections.unmodifiableCollection(running.values());
+    }
+}
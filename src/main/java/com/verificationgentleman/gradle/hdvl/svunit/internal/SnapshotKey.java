@@ -0,0 +1,79 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.svunit.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Identifies the compiled and elaborated snapshot of an SVUnit run, by hashing the args files, the tests and the
+ * compile args.
+ */
+public class SnapshotKey {
+    private final MessageDigest digest;
+
+    public SnapshotKey() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public SnapshotKey add(String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        return this;
+    }
+
+    public SnapshotKey add(List<String> values) {
+        add(String.valueOf(values.size()));
+        for (String value : values)
+            add(value);
+        return this;
+    }
+
+    /**
+     * Adds the path and contents of a file. Files that don't exist only contribute their path.
+     */
+    public SnapshotKey addFile(File file) throws IOException {
+        add(file.getAbsolutePath());
+        if (file.isFile()) {
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                int length;
+                while ((length = in.read(buffer)) > 0)
+                    digest.update(buffer, 0, length);
+            }
+        }
+        digest.update((byte) 0);
+        return this;
+    }
+
+    public String get() {
+        StringBuilder result = new StringBuilder();
+        for (byte b : digest.digest())
+            result.append(String.format("%02x", b));
+        return result.toString();
+    }
+}
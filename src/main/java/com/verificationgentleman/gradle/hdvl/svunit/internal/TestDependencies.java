@@ -0,0 +1,92 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.svunit.internal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Maps each unit test, given by its path relative to the tests root, to the files it transitively depends on. The map
+ * is saved after each run, so that the next run can select the tests affected by the files that changed since.
+ */
+public class TestDependencies {
+    private static final String VERSION = "hdvl-test-dependencies 1";
+
+    private final Map<String, Set<File>> dependencies = new LinkedHashMap<>();
+
+    public void put(String test, Set<File> files) {
+        dependencies.put(test, files);
+    }
+
+    /**
+     * Returns the tests depending on at least one of the given files.
+     */
+    public Set<String> getAffectedTests(Set<File> changedFiles) {
+        Set<String> result = new LinkedHashSet<>();
+        for (Map.Entry<String, Set<File>> entry : dependencies.entrySet())
+            for (File file : entry.getValue())
+                if (changedFiles.contains(file)) {
+                    result.add(entry.getKey());
+                    break;
+                }
+        return result;
+    }
+
+    /**
+     * @return the saved map, or {@code null} if there is none or it can't be read
+     */
+    public static TestDependencies load(File file) throws IOException {
+        if (!file.isFile())
+            return null;
+
+        TestDependencies result = new TestDependencies();
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            if (!VERSION.equals(reader.readLine()))
+                return null;
+            Set<File> current = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("test ")) {
+                    current = new LinkedHashSet<>();
+                    result.dependencies.put(line.substring("test ".length()), current);
+                } else if (line.startsWith("file ") && current != null) {
+                    current.add(new File(line.substring("file ".length())));
+                } else {
+                    return null;
+                }
+            }
+        }
+        return result;
+    }
+
+    public void save(File file) throws IOException {
+        Files.createDirectories(file.getParentFile().toPath());
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(VERSION + "\n");
+            for (Map.Entry<String, Set<File>> entry : dependencies.entrySet()) {
+                writer.write("test " + entry.getKey() + "\n");
+                for (File dependency : entry.getValue())
+                    writer.write("file " + dependency.getPath() + "\n");
+            }
+        }
+    }
+}
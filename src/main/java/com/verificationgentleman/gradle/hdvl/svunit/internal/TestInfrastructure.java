@@ -0,0 +1,211 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.svunit.internal;
+
+import com.verificationgentleman.gradle.hdvl.internal.OutputFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates the SVUnit test infrastructure in-process, the way 'buildSVUnit' does: one testsuite per directory
+ * containing unit tests, a testrunner instantiating all testsuites and a '.svunit.f' args file listing everything.
+ *
+ * <p>The tests root is expected to be reachable through a 'tests' link in the output directory. Paths in '.svunit.f'
+ * are relative to the output directory, so it has to be included with '-F'. Generated files are only replaced when
+ * their contents change, so that testsuites of unchanged directories keep their time stamps. Testsuites of
+ * directories that don't contain unit tests anymore are deleted.</p>
+ */
+public class TestInfrastructure {
+    private static final String UNIT_TEST_SUFFIX = "_unit_test.sv";
+    private static final String TESTSUITE_SUFFIX = "_testsuite.sv";
+
+    private TestInfrastructure() {}
+
+    /**
+     * Returns the paths of the unit tests, relative to the tests root.
+     */
+    public static List<String> findUnitTests(File testsRoot) throws IOException {
+        Path root = testsRoot.toPath();
+        try (Stream<Path> files = Files.walk(root)) {
+            return files
+                    .filter(file -> file.getFileName().toString().endsWith(UNIT_TEST_SUFFIX))
+                    .map(file -> root.relativize(file).toString().replace(File.separatorChar, '/'))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public static void generate(File testsRoot, File outputDir) throws IOException {
+        Map<String, List<String>> unitTestsByDir = new TreeMap<>();
+        for (String unitTest : findUnitTests(testsRoot)) {
+            int separator = unitTest.lastIndexOf('/');
+            String dir = separator < 0 ? "tests" : "tests/" + unitTest.substring(0, separator);
+            unitTestsByDir.computeIfAbsent(dir, d -> new ArrayList<>()).add(unitTest.substring(separator + 1));
+        }
+
+        Set<String> testsuiteFiles = new HashSet<>();
+        for (Map.Entry<String, List<String>> entry : unitTestsByDir.entrySet()) {
+            String testsuite = getTestsuiteName(entry.getKey());
+            testsuiteFiles.add("." + testsuite + ".sv");
+            OutputFiles.write(new File(outputDir, "." + testsuite + ".sv"), true,
+                    writer -> writeTestsuite(writer, testsuite, entry.getValue()));
+        }
+        deleteStaleTestsuites(outputDir, testsuiteFiles);
+
+        OutputFiles.write(new File(outputDir, ".testrunner.sv"), true,
+                writer -> writeTestrunner(writer, unitTestsByDir.keySet()));
+        OutputFiles.write(new File(outputDir, ".svunit.f"), true,
+                writer -> writeArgsFile(writer, outputDir, unitTestsByDir));
+    }
+
+    /**
+     * Returns the name of the testsuite module for a directory, e.g. '__tests_sub_testsuite' for 'tests/sub'.
+     */
+    static String getTestsuiteName(String dir) {
+        return ("./" + dir).replaceAll("[^A-Za-z0-9_]", "_") + "_testsuite";
+    }
+
+    private static String getUnitTestModule(String unitTestFile) {
+        return unitTestFile.substring(0, unitTestFile.length() - ".sv".length());
+    }
+
+    private static String getUnitTestInstance(String unitTestFile) {
+        return unitTestFile.substring(0, unitTestFile.length() - UNIT_TEST_SUFFIX.length()) + "_ut";
+    }
+
+    private static String getTestsuiteInstance(String testsuite) {
+        return testsuite.substring(0, testsuite.length() - "_testsuite".length()) + "_ts";
+    }
+
+    private static void writeTestsuite(Writer writer, String testsuite, List<String> unitTests) throws IOException {
+        writer.write("module " + testsuite + ";\n");
+        writer.write("  import svunit_pkg::svunit_testsuite;\n");
+        writer.write("\n");
+        writer.write("  string name = \"" + getTestsuiteInstance(testsuite) + "\";\n");
+        writer.write("  svunit_testsuite svunit_ts;\n");
+        writer.write("  \n");
+        writer.write("  \n");
+        writeBanner(writer, "These are the unit tests that we", "want included in this testsuite");
+        for (String unitTest : unitTests)
+            writer.write("  " + getUnitTestModule(unitTest) + " " + getUnitTestInstance(unitTest) + "();\n");
+        writer.write("\n");
+        writer.write("\n");
+        writeBanner(writer, "Build");
+        writer.write("  function void build();\n");
+        for (String unitTest : unitTests)
+            writer.write("    " + getUnitTestInstance(unitTest) + ".build();\n");
+        writer.write("    svunit_ts = new(name);\n");
+        for (String unitTest : unitTests)
+            writer.write("    svunit_ts.add_testcase(" + getUnitTestInstance(unitTest) + ".svunit_ut);\n");
+        writer.write("  endfunction\n");
+        writer.write("\n");
+        writer.write("\n");
+        writeBanner(writer, "Run");
+        writer.write("  task run();\n");
+        writer.write("    svunit_ts.run();\n");
+        for (String unitTest : unitTests)
+            writer.write("    " + getUnitTestInstance(unitTest) + ".run();\n");
+        writer.write("    svunit_ts.report();\n");
+        writer.write("  endtask\n");
+        writer.write("\n");
+        writer.write("endmodule\n");
+    }
+
+    private static void writeTestrunner(Writer writer, Collection<String> dirs) throws IOException {
+        List<String> testsuites = dirs.stream().map(TestInfrastructure::getTestsuiteName).collect(Collectors.toList());
+        writer.write("import svunit_pkg::*;\n");
+        writer.write("\n");
+        writer.write("module testrunner();\n");
+        writer.write("  string name = \"testrunner\";\n");
+        writer.write("  svunit_testrunner svunit_tr;\n");
+        writer.write("\n");
+        writer.write("\n");
+        writeBanner(writer, "These are the test suites that we", "want included in this testrunner");
+        for (String testsuite : testsuites)
+            writer.write("  " + testsuite + " " + getTestsuiteInstance(testsuite) + "();\n");
+        writer.write("\n");
+        writer.write("\n");
+        writeBanner(writer, "Main");
+        writer.write("  initial\n");
+        writer.write("  begin\n");
+        writer.write("    build();\n");
+        writer.write("    run();\n");
+        writer.write("    $finish();\n");
+        writer.write("  end\n");
+        writer.write("\n");
+        writer.write("\n");
+        writeBanner(writer, "Build");
+        writer.write("  function void build();\n");
+        writer.write("    svunit_tr = new(name);\n");
+        for (String testsuite : testsuites) {
+            writer.write("    " + getTestsuiteInstance(testsuite) + ".build();\n");
+            writer.write("    svunit_tr.add_testsuite(" + getTestsuiteInstance(testsuite) + ".svunit_ts);\n");
+        }
+        writer.write("  endfunction\n");
+        writer.write("\n");
+        writer.write("\n");
+        writeBanner(writer, "Run");
+        writer.write("  task run();\n");
+        for (String testsuite : testsuites)
+            writer.write("    " + getTestsuiteInstance(testsuite) + ".run();\n");
+        writer.write("    svunit_tr.report();\n");
+        writer.write("  endtask\n");
+        writer.write("\n");
+        writer.write("\n");
+        writer.write("endmodule\n");
+    }
+
+    private static void writeBanner(Writer writer, String... lines) throws IOException {
+        writer.write("  //===================================\n");
+        for (String line : lines)
+            writer.write("  // " + line + "\n");
+        writer.write("  //===================================\n");
+    }
+
+    private static void writeArgsFile(Writer writer, File outputDir, Map<String, List<String>> unitTestsByDir)
+            throws IOException {
+        for (String dir : unitTestsByDir.keySet())
+            writer.write("+incdir+" + dir + "\n");
+        for (Map.Entry<String, List<String>> entry : unitTestsByDir.entrySet()) {
+            String dir = entry.getKey();
+            // Extra files needed by the unit tests of a directory, as picked up by 'buildSVUnit'
+            File extraArgsFile = new File(outputDir, dir + "/svunit.f");
+            if (extraArgsFile.isFile())
+                writer.write("-f " + extraArgsFile.getAbsolutePath() + "\n");
+            for (String unitTest : entry.getValue())
+                writer.write(dir + "/" + unitTest + "\n");
+            writer.write("." + getTestsuiteName(dir) + ".sv\n");
+        }
+        writer.write(".testrunner.sv\n");
+    }
+
+    private static void deleteStaleTestsuites(File outputDir, Set<String> testsuiteFiles) throws IOException {
+        File[] files = outputDir.listFiles((dir, name) -> name.startsWith(".") && name.endsWith(TESTSUITE_SUFFIX));
+        if (files == null)
+            return;
+        for (File file : files)
+            if (!testsuiteFiles.contains(file.getName()))
+                Files.delete(file.toPath());
+    }
+}
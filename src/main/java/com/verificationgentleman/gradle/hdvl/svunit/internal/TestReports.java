@@ -0,0 +1,190 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.svunit.internal;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Writes the test results extracted by {@link SVUnitLogParser} as JUnit XML reports, one per SVUnit test case, and
+ * as a JSON file with the duration of each test.
+ */
+public class TestReports {
+    private TestReports() {}
+
+    public static void writeJUnitReports(SVUnitLogParser parser, File reportsDir) throws IOException {
+        Files.createDirectories(reportsDir.toPath());
+        for (Map.Entry<String, List<SVUnitLogParser.TestResult>> entry : getResultsByTestCase(parser).entrySet())
+            writeJUnitReport(entry.getKey(), entry.getValue(), new File(reportsDir, "TEST-" + entry.getKey() + ".xml"));
+    }
+
+    private static Map<String, List<SVUnitLogParser.TestResult>> getResultsByTestCase(SVUnitLogParser parser) {
+        Map<String, List<SVUnitLogParser.TestResult>> result = new LinkedHashMap<>();
+        for (SVUnitLogParser.TestResult testResult : parser.getResults())
+            result.computeIfAbsent(testResult.getTestCase(), t -> new ArrayList<>()).add(testResult);
+        for (SVUnitLogParser.TestResult testResult : parser.getUnfinished())
+            result.computeIfAbsent(testResult.getTestCase(), t -> new ArrayList<>()).add(testResult);
+        return result;
+    }
+
+    private static void writeJUnitReport(String testCase, List<SVUnitLogParser.TestResult> results, File report)
+            throws IOException {
+        try (OutputStream out = Files.newOutputStream(report.toPath())) {
+            XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            writeTestSuite(writer, testCase, results);
+            writer.writeEndDocument();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not write " + report, e);
+        }
+    }
+
+    /**
+     * Writes all results to a single report, with a test suite per SVUnit test case, in place of the 'tests.xml'
+     * written by 'runSVUnit'. This is needed when the simulation is run directly, without 'runSVUnit'.
+     */
+    public static void writeTestResults(SVUnitLogParser parser, File report) throws IOException {
+        try (OutputStream out = Files.newOutputStream(report.toPath())) {
+            XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement("testsuites");
+            for (Map.Entry<String, List<SVUnitLogParser.TestResult>> entry : getResultsByTestCase(parser).entrySet())
+                writeTestSuite(writer, entry.getKey(), entry.getValue());
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not write " + report, e);
+        }
+    }
+
+    private static void writeTestSuite(XMLStreamWriter writer, String testCase,
+            List<SVUnitLogParser.TestResult> results) throws XMLStreamException {
+        int failures = 0;
+        int errors = 0;
+        int skipped = 0;
+        long durationMillis = 0;
+        for (SVUnitLogParser.TestResult result : results) {
+            if (result.getResult() == null)
+                errors++;
+            else if (result.getResult().equals("FAILED"))
+                failures++;
+            else if (result.getResult().equals("DISABLED"))
+                skipped++;
+            durationMillis += result.getDurationMillis();
+        }
+
+        writer.writeStartElement("testsuite");
+        writer.writeAttribute("name", testCase);
+        writer.writeAttribute("tests", String.valueOf(results.size()));
+        writer.writeAttribute("failures", String.valueOf(failures));
+        writer.writeAttribute("errors", String.valueOf(errors));
+        writer.writeAttribute("skipped", String.valueOf(skipped));
+        writer.writeAttribute("time", seconds(durationMillis));
+        for (SVUnitLogParser.TestResult result : results) {
+            writer.writeStartElement("testcase");
+            writer.writeAttribute("classname", testCase);
+            writer.writeAttribute("name", result.getName());
+            writer.writeAttribute("time", seconds(result.getDurationMillis()));
+            String messages = String.join("\n", result.getMessages());
+            if (result.getResult() == null) {
+                writer.writeStartElement("error");
+                writer.writeAttribute("message", "Test did not finish");
+                writer.writeCharacters(messages);
+                writer.writeEndElement();
+            } else if (result.getResult().equals("FAILED")) {
+                writer.writeStartElement("failure");
+                writer.writeAttribute("message", result.getMessages().isEmpty() ? "" : result.getMessages().get(0));
+                writer.writeCharacters(messages);
+                writer.writeEndElement();
+            } else if (result.getResult().equals("DISABLED")) {
+                writer.writeEmptyElement("skipped");
+            }
+            writer.writeEndElement();
+        }
+        writer.writeEndElement();
+    }
+
+    private static String seconds(long millis) {
+        return String.format(Locale.ROOT, "%.3f", millis / 1000.0);
+    }
+
+    public static void writeTimings(SVUnitLogParser parser, File destination) throws IOException {
+        List<Map<String, Object>> timings = new ArrayList<>();
+        for (SVUnitLogParser.TestResult result : parser.getResults()) {
+            Map<String, Object> timing = new LinkedHashMap<>();
+            timing.put("testCase", result.getTestCase());
+            timing.put("test", result.getName());
+            timing.put("result", result.getResult());
+            timing.put("durationMillis", result.getDurationMillis());
+            timing.put("simulationStartTime", result.getSimulationStartTime());
+            timing.put("simulationEndTime", result.getSimulationEndTime());
+            timings.add(timing);
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(destination, timings);
+    }
+
+    /**
+     * Concatenates the timings written by several runs. Timing files that don't exist are skipped.
+     *
+     * @param keepOtherTests whether to keep the timings already in the destination for test cases that didn't run
+     */
+    public static void mergeTimings(List<File> timingFiles, File destination, boolean keepOtherTests)
+            throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Map<String, Object>> timings = new ArrayList<>();
+        for (File timingFile : timingFiles)
+            if (timingFile.isFile())
+                timings.addAll(readTimings(objectMapper, timingFile));
+
+        if (keepOtherTests && destination.isFile()) {
+            Set<Object> testCases = new HashSet<>();
+            for (Map<String, Object> timing : timings)
+                testCases.add(timing.get("testCase"));
+            List<Map<String, Object>> kept = new ArrayList<>();
+            for (Map<String, Object> timing : readTimings(objectMapper, destination))
+                if (!testCases.contains(timing.get("testCase")))
+                    kept.add(timing);
+            timings.addAll(0, kept);
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(destination, timings);
+    }
+
+    /**
+     * Whether none of the tests in a timings file failed.
+     */
+    public static boolean allPassed(File timingsFile) throws IOException {
+        for (Map<String, Object> timing : readTimings(new ObjectMapper(), timingsFile))
+            if ("FAILED".equals(timing.get("result")))
+                return false;
+        return true;
+    }
+
+    private static List<Map<String, Object>> readTimings(ObjectMapper objectMapper, File file) throws IOException {
+        return objectMapper.readValue(file, new TypeReference<List<Map<String, Object>>>() {});
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.verificationgentleman.gradle.hdvl.svunit.internal;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Merges the JUnit XML reports ('tests.xml') written by several SVUnit runs into a single report.
+ *
+ * <p>When only some of the unit tests ran again, the results of the others are taken over from the previous report,
+ * the same way as for the timings.</p>
+ */
+public class TestResults {
+    private TestResults() {}
+
+    /**
+     * Writes a report containing the test suites of all given reports. Reports that don't exist are skipped.
+     *
+     * @param keepOtherTests whether to keep the test cases of the existing report at the destination that aren't part
+     *                       of the given reports, because they didn't run again
+     */
+    public static void merge(List<File> reports, File destination, boolean keepOtherTests) throws IOException {
+        try {
+            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            Document result = builder.newDocument();
+            Element testSuites = result.createElement("testsuites");
+            result.appendChild(testSuites);
+            for (File report : reports)
+                if (report.isFile())
+                    for (Element testSuite : getTestSuites(builder.parse(report)))
+                        testSuites.appendChild(result.importNode(testSuite, true));
+
+            if (keepOtherTests && destination.isFile())
+                keepOtherTests(result, builder.parse(destination));
+
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+            transformer.transform(new DOMSource(result), new StreamResult(destination));
+        } catch (ParserConfigurationException | SAXException | TransformerException e) {
+            throw new IOException("Could not merge test results into " + destination, e);
+        }
+    }
+
+    private static List<Element> getTestSuites(Document report) {
+        Element root = report.getDocumentElement();
+        if (root.getTagName().equals("testsuite"))
+            return Collections.singletonList(root);
+        return getChildElements(root, "testsuite");
+    }
+
+    /**
+     * Adds the test cases of the previous report whose SVUnit test case (the 'classname') didn't run again. They are
+     * added to the test suite with the same name, if there is one, or in a test suite of their own, in front.
+     */
+    private static void keepOtherTests(Document result, Document previous) {
+        Set<String> rerun = new HashSet<>();
+        Map<String, Element> testSuitesByName = new HashMap<>();
+        for (Element testSuite : getChildElements(result.getDocumentElement(), "testsuite")) {
+            testSuitesByName.putIfAbsent(testSuite.getAttribute("name"), testSuite);
+            for (Element testCase : getChildElements(testSuite, "testcase"))
+                rerun.add(testCase.getAttribute("classname"));
+        }
+
+        Node first = result.getDocumentElement().getFirstChild();
+        for (Element previousTestSuite : getTestSuites(previous)) {
+            List<Element> kept = new ArrayList<>();
+            for (Element testCase : getChildElements(previousTestSuite, "testcase"))
+                if (!rerun.contains(testCase.getAttribute("classname")))
+                    kept.add(testCase);
+            if (kept.isEmpty())
+                continue;
+
+            Element testSuite = testSuitesByName.get(previousTestSuite.getAttribute("name"));
+            if (testSuite == null) {
+                testSuite = (Element) result.importNode(previousTestSuite, false);
+                result.getDocumentElement().insertBefore(testSuite, first);
+                testSuitesByName.put(testSuite.getAttribute("name"), testSuite);
+            }
+            for (Element testCase : kept)
+                testSuite.appendChild(result.importNode(testCase, true));
+            updateCounts(testSuite);
+        }
+    }
+
+    private static void updateCounts(Element testSuite) {
+        List<Element> testCases = getChildElements(testSuite, "testcase");
+        if (testSuite.hasAttribute("tests"))
+            testSuite.setAttribute("tests", String.valueOf(testCases.size()));
+        if (testSuite.hasAttribute("failures")) {
+            int failures = 0;
+            for (Element testCase : testCases)
+                if (!getChildElements(testCase, "failure").isEmpty())
+                    failures++;
+            testSuite.setAttribute("failures", String.valueOf(failures));
+        }
+    }
+
+    private static List<Element> getChildElements(Element parent, String tagName) {
+        List<Element> result = new ArrayList<>();
+        NodeList children = parent.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++)
+            if (children.item(i) instanceof Element && ((Element) children.item(i)).getTagName().equals(tagName))
+                result.add((Element) children.item(i));
+        return result;
+    }
+}
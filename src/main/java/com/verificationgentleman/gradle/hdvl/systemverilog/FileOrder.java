@@ -1,5 +1,5 @@
 /*
- * Copyright 2024 the original author or authors.
+ * Copyright 2024-2026 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,10 +16,56 @@
 
 package com.verificationgentleman.gradle.hdvl.systemverilog;
 
+import java.util.List;
+
+/**
+ * The order in which SystemVerilog source files are compiled.
+ *
+ * <p>Files are placed in groups using Ant-style patterns, matched against their paths relative to the source
+ * directory. Groups added with {@link #first(String...)} are compiled before all other files, in the order they were
+ * added, and groups added with {@link #last(String...)} after all other files, also in the order they were added.
+ * Groups added with {@link #rank(int, String...)} are compiled in between, ordered by rank; files that don't match
+ * any pattern have rank 0. A file belongs to the first group, in the order they were added, that it matches. Within
+ * a group, files keep their file system order.</p>
+ *
+ * <p>With {@link #byDependencies()}, files are additionally reordered such that files declaring packages are compiled
+ * before the files that import or otherwise reference them. The groups are then only used to break ties.</p>
+ */
 public interface FileOrder {
+	/**
+	 * Returns the first pattern of the first group to compile first, or {@code null} if there is none.
+	 */
 	String getFirst();
-	FileOrder first(String first);
+	FileOrder first(String... patterns);
 
+	/**
+	 * Returns the first pattern of the first group to compile last, or {@code null} if there is none.
+	 */
 	String getLast();
-	FileOrder last(String last);
+	FileOrder last(String... patterns);
+
+	FileOrder rank(int rank, String... patterns);
+
+	List<Rule> getRules();
+
+	/**
+	 * Infers the compile order from the {@code package} declarations, package references and {@code `include}
+	 * directives in the source files.
+	 */
+	FileOrder byDependencies();
+
+	boolean isByDependencies();
+
+	interface Rule {
+		enum Placement { FIRST, RANKED, LAST }
+
+		Placement getPlacement();
+
+		/**
+		 * Returns the rank of {@link Placement#RANKED} groups.
+		 */
+		int getRank();
+
+		List<String> getPatterns();
+	}
 }
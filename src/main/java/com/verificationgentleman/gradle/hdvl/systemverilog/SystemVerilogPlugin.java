@@ -1,5 +1,5 @@
 /*
- * Copyright 2020-2022 the original author or authors.
+ * Copyright 2020-2026 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ import com.verificationgentleman.gradle.hdvl.AbstractGenArgsFile;
 import com.verificationgentleman.gradle.hdvl.HDVLBasePlugin;
 import com.verificationgentleman.gradle.hdvl.HDVLPluginExtension;
 import com.verificationgentleman.gradle.hdvl.SourceSet;
+import com.verificationgentleman.gradle.hdvl.internal.FileUtils;
 import com.verificationgentleman.gradle.hdvl.internal.WriteCompileSpecFile;
 import com.verificationgentleman.gradle.hdvl.systemverilog.internal.DefaultSystemVerilogSourceSet;
 import org.gradle.api.Action;
@@ -36,8 +37,8 @@ public class SystemVerilogPlugin implements Plugin<Project> {
     @Override
     public void apply(Project project) {
         project.getPluginManager().apply(HDVLBasePlugin.class);
-        NamedDomainObjectContainer<SourceSet> sourceSets
-                = project.getExtensions().getByType(HDVLPluginExtension.class).getSourceSets();
+        HDVLPluginExtension extension = project.getExtensions().getByType(HDVLPluginExtension.class);
+        NamedDomainObjectContainer<SourceSet> sourceSets = extension.getSourceSets();
         sourceSets.all(new Action<SourceSet>() {
             @Override
             public void execute(SourceSet sourceSet) {
@@ -47,41 +48,40 @@ public class SystemVerilogPlugin implements Plugin<Project> {
                 // XXX WORKAROUND Not part of the public API
                 new DslObject(sourceSet).getConvention().getPlugins().put("sv", svSourceSet);
 
-                String[] toolNames = {"Xrun", "Qrun"};
-                for (String toolName: toolNames) {
-                    AbstractGenArgsFile genArgsFile
-                        = (AbstractGenArgsFile) project.getTasks().getByName(sourceSet.getGenArgsFileTaskName(toolName));
-                    configureSources(genArgsFile, svSourceSet);
-                }
+                extension.getTools().all(tool -> {
+                    project.getTasks().named(sourceSet.getGenArgsFileTaskName(tool.getCapitalizedName()),
+                            AbstractGenArgsFile.class, genArgsFile -> configureSources(genArgsFile, svSourceSet));
+                });
 
                 if (sourceSet.getName() == "main") {
-                    project.getTasks().withType(WriteCompileSpecFile.class, task -> {
+                    project.getTasks().withType(WriteCompileSpecFile.class).configureEach(task -> {
                         task.getSvSource().from(svSourceSet.getSv());
                         task.getSvSourceOrder().set(svSourceSet.getSv().getOrder());
+                        task.getSourceRoots().from(svSourceSet.getSv().getSourceDirectories());
                         task.getSvPrivateIncludeDirs().from(svSourceSet.getSv().getSourceDirectories().filter(File::exists));
                         task.getSvExportedHeaderDirs().from(svSourceSet.getSvHeaders().getSourceDirectories().filter(File::exists));
                     });
-                    project.getTasks().getByName("hdvlSourcesArchive", task -> {
-                        Zip hdvlSourcesArchive = (Zip) task;
+                    project.getTasks().named("hdvlSourcesArchive", Zip.class, hdvlSourcesArchive -> {
+                        File projectDir = project.getProjectDir();
                         hdvlSourcesArchive.from(svSourceSet.getSv(), it -> {
                             it.eachFile(file -> {
-                                file.setPath(project.relativePath(file.getFile()));
+                                file.setPath(FileUtils.relativePath(projectDir, file.getFile()));
                             });
                         });
 
                         hdvlSourcesArchive.setDuplicatesStrategy(DuplicatesStrategy.EXCLUDE);
 
                         // FIXME Implement proper handling of SV private headers
-                        hdvlSourcesArchive.from(svSourceSet.getSv().getSourceDirectories().getElements().map(project::files), it -> {
+                        hdvlSourcesArchive.from(svSourceSet.getSv().getSourceDirectories(), it -> {
                             it.eachFile(file -> {
-                                file.setPath(project.relativePath(file.getFile()));
+                                file.setPath(FileUtils.relativePath(projectDir, file.getFile()));
                             });
                         });
 
                         // FIXME Implement proper handling of SV exported headers
-                        hdvlSourcesArchive.from(svSourceSet.getSvHeaders().getSourceDirectories().getElements().map(project::files), it -> {
+                        hdvlSourcesArchive.from(svSourceSet.getSvHeaders().getSourceDirectories(), it -> {
                             it.eachFile(file -> {
-                                file.setPath(project.relativePath(file.getFile()));
+                                file.setPath(FileUtils.relativePath(projectDir, file.getFile()));
                             });
                         });
                     });
@@ -92,6 +92,7 @@ public class SystemVerilogPlugin implements Plugin<Project> {
 
     private void configureSources(AbstractGenArgsFile genArgsFile, SystemVerilogSourceSet svSourceSet) {
         genArgsFile.setSource(svSourceSet.getSv());
+        genArgsFile.getSourceRoots().from(svSourceSet.getSv().getSourceDirectories());
         genArgsFile.getSvOrder().set(svSourceSet.getSv().getOrder());
         genArgsFile.setPrivateIncludeDirs(svSourceSet.getSv().getSourceDirectories());
         genArgsFile.setExportedIncludeDirs(svSourceSet.getSvHeaders().getSourceDirectories());
@@ -1,5 +1,5 @@
 /*
- * Copyright 2024-2025 the original author or authors.
+ * Copyright 2024-2026 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,10 @@ import org.gradle.api.tasks.util.internal.PatternSetFactory;
 
 import javax.inject.Inject;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 public class DefaultSystemVerilogSourceDirectorySet extends DefaultSourceDirectorySet implements SystemVerilogSourceDirectorySet {
     // TODO Stop using internal class by using decorator pattern
@@ -52,29 +56,87 @@ public class DefaultSystemVerilogSourceDirectorySet extends DefaultSourceDirecto
     }
 
     private static class Order implements FileOrder, Serializable {
-        private String first;
-        private String last;
+        private final List<Rule> rules = new ArrayList<>();
+        private boolean byDependencies;
 
         @Override
         public String getFirst() {
-            return first;
+            return getFirstPattern(Rule.Placement.FIRST);
         }
 
         @Override
-        public FileOrder first(String first) {
-            this.first = first;
+        public FileOrder first(String... patterns) {
+            rules.add(new DefaultRule(Rule.Placement.FIRST, 0, patterns));
             return this;
         }
 
         @Override
         public String getLast() {
-            return last;
+            return getFirstPattern(Rule.Placement.LAST);
         }
 
         @Override
-        public FileOrder last(String last) {
-            this.last = last;
+        public FileOrder last(String... patterns) {
+            rules.add(new DefaultRule(Rule.Placement.LAST, 0, patterns));
             return this;
         }
+
+        @Override
+        public FileOrder rank(int rank, String... patterns) {
+            rules.add(new DefaultRule(Rule.Placement.RANKED, rank, patterns));
+            return this;
+        }
+
+        @Override
+        public List<Rule> getRules() {
+            return Collections.unmodifiableList(rules);
+        }
+
+        @Override
+        public FileOrder byDependencies() {
+            byDependencies = true;
+            return this;
+        }
+
+        @Override
+        public boolean isByDependencies() {
+            return byDependencies;
+        }
+
+        private String getFirstPattern(Rule.Placement placement) {
+            for (Rule rule : rules)
+                if (rule.getPlacement() == placement && !rule.getPatterns().isEmpty())
+                    return rule.getPatterns().get(0);
+            return null;
+        }
+    }
+
+    private static class DefaultRule implements FileOrder.Rule, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Placement placement;
+        private final int rank;
+        private final List<String> patterns;
+
+        DefaultRule(Placement placement, int rank, String... patterns) {
+            this.placement = placement;
+            this.rank = rank;
+            this.patterns = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(patterns)));
+        }
+
+        @Override
+        public Placement getPlacement() {
+            return placement;
+        }
+
+        @Override
+        public int getRank() {
+            return rank;
+        }
+
+        @Override
+        public List<String> getPatterns() {
+            return patterns;
+        }
     }
 }